@@ -5,9 +5,15 @@ import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ConfigurationException;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.ContestSettings;
 import ru.strategy48.ejudge.polygon2ejudge.contest.ContestUtils;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.CompilationCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.PackageCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.CompilerProfiles;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.ConnectionSettings;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.PolygonException;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -15,11 +21,15 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 
 /**
  * @author Perveev Mike (perveev_m@mail.ru)
  */
 public class Main {
+    private static final long DEFAULT_CACHE_SIZE_MB = 10 * 1024;
+    private static final long DEFAULT_COMPILE_CACHE_SIZE_MB = 1024;
+
     private static Path credentialsFile;
 
     public static void main(String[] args) {
@@ -28,18 +38,106 @@ public class Main {
         Option defaultConfigFileOption = new Option("s", "config", true, "Default serve.cfg template");
         Option contestsDirOption = new Option("d", "contest_dir", true, "Contest directory");
         Option firstProblemShortName = new Option("n", "first_prob", true, "First problem short name");
+        Option jobsOption = new Option("j", "jobs", true, "Number of problems prepared concurrently");
+        Option cacheDirOption = new Option(null, "cache_dir", true, "Directory for downloaded packages cache");
+        Option cacheSizeOption = new Option(null, "cache_size", true, "Packages cache size limit in megabytes");
+        Option noCacheOption = new Option(null, "no_cache", false, "Don't use packages cache");
+        Option purgeCacheOption = new Option(null, "purge_cache", false, "Remove all cached packages before run");
+        Option compileCacheDirOption = new Option(null, "compile_cache_dir", true,
+                "Directory for compiled sources cache");
+        Option compileCacheSizeOption = new Option(null, "compile_cache_size", true,
+                "Compiled sources cache size limit in megabytes");
+        Option syncOption = new Option(null, "sync", false, "Rebuild only problems with changed packages");
+        Option streamExtractOption = new Option(null, "stream_extract", false,
+                "Extract packages while downloading them");
+        Option selectiveExtractOption = new Option(null, "selective_extract", false,
+                "Extract only package files referenced by problem.xml");
+        Option extractThreadsOption = new Option(null, "extract_threads", true,
+                "Number of threads extracting single package");
+        Option compileThreadsOption = new Option(null, "compile_threads", true,
+                "Number of sources of single problem compiled simultaneously");
+        Option noPchOption = new Option(null, "no_pch", false,
+                "Don't precompile headers shared by C++ sources of problem");
+        Option compilerProfilesOption = new Option(null, "compiler_profiles", true,
+                "Properties file with C++ compiler profiles and Python interpreters of generators, validators, "
+                        + "checkers, interactors and solutions");
+        Option javaCdsOption = new Option(null, "java_cds", false,
+                "Create Class Data Sharing archives of Java executables by training runs");
+        Option warmJvmOption = new Option(null, "warm_jvm", false,
+                "Run Java generators, validators, checkers and solutions of problem in one warm JVM");
+        Option prefetchOption = new Option(null, "prefetch", true,
+                "Number of packages downloaded in advance while other problems are built");
+        Option prefetchBudgetOption = new Option(null, "prefetch_budget", true,
+                "Maximal total size of prefetched packages in megabytes");
+        Option contestOrderOption = new Option(null, "contest_order", false,
+                "Build problems in contest order instead of the largest packages first");
+        Option deltaOption = new Option(null, "delta", false,
+                "Fetch only changed files of problems whose older packages are cached");
+        Option reuseTestsOption = new Option(null, "reuse_tests", false,
+                "Take tests and answers from packages instead of generating them");
+        Option verifyTestsOption = new Option(null, "verify_tests", true,
+                "Number of random reused tests generated locally to check the package");
+        Option packageTypeOption = new Option(null, "package_type", true,
+                "Type of downloaded packages: standard, linux or windows (chosen automatically by default)");
+        Option connectTimeoutOption = new Option(null, "connect_timeout", true,
+                "Polygon connection timeout in seconds (0 for infinite)");
+        Option readTimeoutOption = new Option(null, "read_timeout", true,
+                "Polygon socket read timeout in seconds (0 for infinite)");
+        Option maxConnectionsOption = new Option(null, "max_connections", true,
+                "Maximal number of simultaneous connections to Polygon");
+        Option maxAttemptsOption = new Option(null, "max_attempts", true,
+                "Maximal number of attempts for failed Polygon requests");
+        Option rateLimitOption = new Option(null, "rate_limit", true,
+                "Maximal number of Polygon requests per second (0 for unlimited)");
+        Option apiUrlOption = new Option(null, "api_url", true, "Polygon API base URL");
 
         credentialsFileOption.setArgs(1);
         contestIdOption.setArgs(1);
         defaultConfigFileOption.setArgs(1);
         contestsDirOption.setArgs(1);
         firstProblemShortName.setArgs(1);
+        jobsOption.setArgs(1);
+        cacheDirOption.setArgs(1);
+        cacheSizeOption.setArgs(1);
+        compileCacheDirOption.setArgs(1);
+        compileCacheSizeOption.setArgs(1);
+        connectTimeoutOption.setArgs(1);
+        readTimeoutOption.setArgs(1);
+        maxConnectionsOption.setArgs(1);
+        maxAttemptsOption.setArgs(1);
+        rateLimitOption.setArgs(1);
+        apiUrlOption.setArgs(1);
+        extractThreadsOption.setArgs(1);
+        compileThreadsOption.setArgs(1);
+        compilerProfilesOption.setArgs(1);
+        prefetchOption.setArgs(1);
+        prefetchBudgetOption.setArgs(1);
+        verifyTestsOption.setArgs(1);
+        packageTypeOption.setArgs(1);
 
         credentialsFileOption.setOptionalArg(false);
         contestIdOption.setOptionalArg(false);
         defaultConfigFileOption.setOptionalArg(false);
         contestsDirOption.setOptionalArg(false);
         firstProblemShortName.setOptionalArg(false);
+        jobsOption.setOptionalArg(false);
+        cacheDirOption.setOptionalArg(false);
+        cacheSizeOption.setOptionalArg(false);
+        compileCacheDirOption.setOptionalArg(false);
+        compileCacheSizeOption.setOptionalArg(false);
+        connectTimeoutOption.setOptionalArg(false);
+        readTimeoutOption.setOptionalArg(false);
+        maxConnectionsOption.setOptionalArg(false);
+        maxAttemptsOption.setOptionalArg(false);
+        rateLimitOption.setOptionalArg(false);
+        apiUrlOption.setOptionalArg(false);
+        extractThreadsOption.setOptionalArg(false);
+        compileThreadsOption.setOptionalArg(false);
+        compilerProfilesOption.setOptionalArg(false);
+        prefetchOption.setOptionalArg(false);
+        prefetchBudgetOption.setOptionalArg(false);
+        verifyTestsOption.setOptionalArg(false);
+        packageTypeOption.setOptionalArg(false);
 
         Options posixOptions = new Options();
         posixOptions.addOption(credentialsFileOption);
@@ -47,6 +145,35 @@ public class Main {
         posixOptions.addOption(defaultConfigFileOption);
         posixOptions.addOption(contestsDirOption);
         posixOptions.addOption(firstProblemShortName);
+        posixOptions.addOption(jobsOption);
+        posixOptions.addOption(cacheDirOption);
+        posixOptions.addOption(cacheSizeOption);
+        posixOptions.addOption(noCacheOption);
+        posixOptions.addOption(purgeCacheOption);
+        posixOptions.addOption(compileCacheDirOption);
+        posixOptions.addOption(compileCacheSizeOption);
+        posixOptions.addOption(syncOption);
+        posixOptions.addOption(streamExtractOption);
+        posixOptions.addOption(selectiveExtractOption);
+        posixOptions.addOption(extractThreadsOption);
+        posixOptions.addOption(compileThreadsOption);
+        posixOptions.addOption(noPchOption);
+        posixOptions.addOption(compilerProfilesOption);
+        posixOptions.addOption(javaCdsOption);
+        posixOptions.addOption(warmJvmOption);
+        posixOptions.addOption(prefetchOption);
+        posixOptions.addOption(prefetchBudgetOption);
+        posixOptions.addOption(contestOrderOption);
+        posixOptions.addOption(deltaOption);
+        posixOptions.addOption(reuseTestsOption);
+        posixOptions.addOption(verifyTestsOption);
+        posixOptions.addOption(packageTypeOption);
+        posixOptions.addOption(connectTimeoutOption);
+        posixOptions.addOption(readTimeoutOption);
+        posixOptions.addOption(maxConnectionsOption);
+        posixOptions.addOption(maxAttemptsOption);
+        posixOptions.addOption(rateLimitOption);
+        posixOptions.addOption(apiUrlOption);
 
         CommandLineParser parser = new DefaultParser();
         CommandLine commandLine;
@@ -65,9 +192,10 @@ public class Main {
         Path contestDirectory = Paths.get(commandLine.getOptionValue("contest_dir"));
         char firstShortName = commandLine.getOptionValue("first_prob").charAt(0);
 
-        try (PolygonSession session = getPolygonSession()) {
+        try (PolygonSession session = getPolygonSession(commandLine)) {
+            ContestSettings settings = getContestSettings(commandLine);
             ContestUtils.prepareContest(session, contestId, contestDirectory,
-                    "Generic", defaultConfigFile, firstShortName);
+                    "Generic", defaultConfigFile, firstShortName, settings);
         } catch (IOException e) {
             ConsoleLogger.logError(e, "Error happened while reading credentials file!");
             e.printStackTrace();
@@ -80,7 +208,109 @@ public class Main {
         }
     }
 
-    private static PolygonSession getPolygonSession() throws ContestException {
+    private static ContestSettings getContestSettings(final CommandLine commandLine) throws ContestException {
+        ContestSettings settings = new ContestSettings();
+
+        try {
+            if (commandLine.hasOption("jobs")) {
+                settings.setJobs(Integer.parseInt(commandLine.getOptionValue("jobs")));
+            }
+            settings.setIncremental(commandLine.hasOption("sync"));
+            settings.setStreamingExtraction(commandLine.hasOption("stream_extract"));
+            settings.setSelectiveExtraction(commandLine.hasOption("selective_extract"));
+            if (commandLine.hasOption("extract_threads")) {
+                settings.setExtractionThreads(Integer.parseInt(commandLine.getOptionValue("extract_threads")));
+            }
+            if (commandLine.hasOption("compile_threads")) {
+                settings.setCompilationThreads(Integer.parseInt(commandLine.getOptionValue("compile_threads")));
+            }
+            settings.setPrecompiledHeaders(!commandLine.hasOption("no_pch"));
+            if (commandLine.hasOption("compiler_profiles")) {
+                settings.setCompilerProfiles(CompilerProfiles.load(
+                        Paths.get(commandLine.getOptionValue("compiler_profiles"))));
+            }
+            settings.setClassDataSharing(commandLine.hasOption("java_cds"));
+            settings.setWarmJvm(commandLine.hasOption("warm_jvm"));
+            if (commandLine.hasOption("prefetch")) {
+                settings.setPrefetchDepth(Integer.parseInt(commandLine.getOptionValue("prefetch")));
+            }
+            if (commandLine.hasOption("prefetch_budget")) {
+                settings.setPrefetchBudget(
+                        Long.parseLong(commandLine.getOptionValue("prefetch_budget")) * 1024 * 1024);
+            }
+            settings.setLargestFirst(!commandLine.hasOption("contest_order"));
+            settings.setDeltaFetch(commandLine.hasOption("delta"));
+            settings.setReuseTests(commandLine.hasOption("reuse_tests"));
+            if (commandLine.hasOption("verify_tests")) {
+                settings.setVerifiedTests(Integer.parseInt(commandLine.getOptionValue("verify_tests")));
+            }
+            if (commandLine.hasOption("package_type")) {
+                settings.setPackageType(PackageType.valueOf(
+                        commandLine.getOptionValue("package_type").toUpperCase(Locale.ROOT)));
+            }
+
+            if (commandLine.hasOption("cache_dir")) {
+                long cacheSize = DEFAULT_CACHE_SIZE_MB;
+                if (commandLine.hasOption("cache_size")) {
+                    cacheSize = Long.parseLong(commandLine.getOptionValue("cache_size"));
+                }
+
+                PackageCache cache = new PackageCache(Paths.get(commandLine.getOptionValue("cache_dir")),
+                        cacheSize * 1024 * 1024);
+                if (commandLine.hasOption("purge_cache")) {
+                    cache.purge();
+                }
+                if (!commandLine.hasOption("no_cache")) {
+                    settings.setPackageCache(cache);
+                }
+            }
+
+            if (commandLine.hasOption("compile_cache_dir")) {
+                long cacheSize = DEFAULT_COMPILE_CACHE_SIZE_MB;
+                if (commandLine.hasOption("compile_cache_size")) {
+                    cacheSize = Long.parseLong(commandLine.getOptionValue("compile_cache_size"));
+                }
+
+                settings.setCompilationCache(new CompilationCache(
+                        Paths.get(commandLine.getOptionValue("compile_cache_dir")), cacheSize * 1024 * 1024));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ContestException("incorrect command line argument (" + e.getMessage() + ")", e);
+        }
+
+        return settings;
+    }
+
+    private static ConnectionSettings getConnectionSettings(final CommandLine commandLine) throws ContestException {
+        ConnectionSettings settings = new ConnectionSettings();
+
+        try {
+            if (commandLine.hasOption("connect_timeout")) {
+                settings.setConnectTimeout(Integer.parseInt(commandLine.getOptionValue("connect_timeout")) * 1000);
+            }
+            if (commandLine.hasOption("read_timeout")) {
+                settings.setReadTimeout(Integer.parseInt(commandLine.getOptionValue("read_timeout")) * 1000);
+            }
+            if (commandLine.hasOption("max_connections")) {
+                settings.setMaxConnections(Integer.parseInt(commandLine.getOptionValue("max_connections")));
+            }
+            if (commandLine.hasOption("max_attempts")) {
+                settings.setMaxAttempts(Integer.parseInt(commandLine.getOptionValue("max_attempts")));
+            }
+            if (commandLine.hasOption("rate_limit")) {
+                settings.setRequestsPerSecond(Double.parseDouble(commandLine.getOptionValue("rate_limit")));
+            }
+            if (commandLine.hasOption("api_url")) {
+                settings.setApiUrl(commandLine.getOptionValue("api_url"));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ContestException("incorrect command line argument (" + e.getMessage() + ")", e);
+        }
+
+        return settings;
+    }
+
+    private static PolygonSession getPolygonSession(final CommandLine commandLine) throws ContestException {
         String key, secret;
 
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -95,6 +325,6 @@ public class Main {
             throw new ConfigurationException(credentialsFile, e);
         }
 
-        return new PolygonSession(key, secret);
+        return new PolygonSession(key, secret, getConnectionSettings(commandLine));
     }
 }
@@ -0,0 +1,115 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.JSONStreamReader;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.JSONUtils;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageState;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compares decoding of large synthetic <code>problem.packages</code> responses via {@link String} and JSON tree
+ * (previous implementation, kept here as baseline) with streaming decoding via {@link JSONStreamReader}.
+ * Usage: <code>JSONDecodingBenchmark [packages count] [iterations]</code>
+ */
+public class JSONDecodingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int packagesCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        byte[] response = generateResponse(packagesCount);
+        System.out.printf("Response: %d packages, %.1f MB%n", packagesCount, response.length / (1024.0 * 1024.0));
+
+        for (int i = 0; i < iterations; i++) {
+            Result tree = measure(() -> decodeTree(response));
+            Result streaming = measure(() -> decodeStreaming(response));
+            System.out.printf("Iteration %d: tree %.1f ms, %.1f MB allocated; streaming %.1f ms, %.1f MB allocated%n",
+                    i + 1, tree.millis, tree.allocatedMegabytes, streaming.millis, streaming.allocatedMegabytes);
+        }
+    }
+
+    /**
+     * Baseline: response body is read to {@link String} and parsed to JSON tree, then packages are converted
+     */
+    private static List<Package> decodeTree(final byte[] response) throws Exception {
+        JSONObject json = new JSONObject(EntityUtils.toString(new ByteArrayEntity(response,
+                ContentType.APPLICATION_JSON)));
+        if (!json.getString("status").equals("OK")) {
+            throw new IllegalStateException("Response status is " + json.getString("status"));
+        }
+        JSONArray result = json.getJSONArray("result");
+        List<Package> packages = new ArrayList<>();
+        for (int i = 0; i < result.length(); i++) {
+            packages.add(packageFromJSON(result.getJSONObject(i)));
+        }
+        return packages;
+    }
+
+    private static Package packageFromJSON(final JSONObject json) {
+        return new Package(json.getInt("id"), json.getInt("revision"), json.getInt("creationTimeSeconds"),
+                json.getEnum(PackageState.class, "state"), json.getString("comment"),
+                json.has("type") ? PackageType.fromName(json.getString("type")) : null);
+    }
+
+    private static List<Package> decodeStreaming(final byte[] response) throws Exception {
+        try (JSONStreamReader reader = new JSONStreamReader(new ByteArrayInputStream(response))) {
+            return JSONUtils.resultFromJSON(reader, JSONUtils::packagesFromJSON);
+        }
+    }
+
+    private static byte[] generateResponse(final int packagesCount) {
+        StringBuilder json = new StringBuilder("{\"status\":\"OK\",\"result\":[");
+        for (int i = 0; i < packagesCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format("{\"id\":%d,\"revision\":%d,\"creationTimeSeconds\":%d,\"state\":\"READY\","
+                            + "\"comment\":\"Package #%d for revision %d \\u2014 auto-generated\",\"type\":\"linux\"}",
+                    100_000 + i, i / 3 + 1, 1_600_000_000 + i, i, i / 3 + 1));
+        }
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Result measure(final Decoder decoder) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        List<Package> packages = decoder.decode();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        if (packages.isEmpty()) {
+            throw new IllegalStateException("Nothing was decoded");
+        }
+        return new Result(elapsed / 1e6, allocated / (1024.0 * 1024.0));
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        List<Package> decode() throws Exception;
+    }
+
+    private static class Result {
+        private final double millis;
+        private final double allocatedMegabytes;
+
+        private Result(final double millis, final double allocatedMegabytes) {
+            this.millis = millis;
+            this.allocatedMegabytes = allocatedMegabytes;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.JavaCompiler;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compares startup time of Java executable wrapper scripts with and without Class Data Sharing archive. Source is
+ * compiled twice in temporary directories, archive is created for one of them. Wrappers are run alternately in
+ * current directory with given arguments and empty input, output is discarded. First runs warm up file cache and
+ * are not measured
+ * Usage: <code>JavaStartupBenchmark &lt;source&gt; &lt;iterations&gt; [arguments...]</code>
+ */
+public class JavaStartupBenchmark {
+    private static final int WARMUP_RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Path source = Paths.get(args[0]);
+        int iterations = Integer.parseInt(args[1]);
+        List<String> arguments = Arrays.asList(args).subList(2, args.length);
+
+        JavaCompiler compiler = JavaCompiler.getInstance();
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Path directory = Files.createTempDirectory("startup-benchmark");
+            Path copy = Files.copy(source, directory.resolve(source.getFileName()));
+            compiler.compile(copy);
+            if (i == 1 && !compiler.createClassDataArchive(copy)) {
+                System.out.println("Archive wasn't created");
+                return;
+            }
+            scripts.add(directory.resolve(compiler.findMainClassName(copy)));
+        }
+        File input = Files.createTempFile("startup-benchmark", ".in").toFile();
+
+        long[][] times = new long[2][iterations];
+        for (int i = -WARMUP_RUNS; i < iterations; i++) {
+            for (int j = 0; j < 2; j++) {
+                List<String> command = new ArrayList<>(List.of("bash", scripts.get(j).toString()));
+                command.addAll(arguments);
+                long start = System.nanoTime();
+                new ProcessBuilder(command)
+                        .redirectInput(input)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.DISCARD)
+                        .start()
+                        .waitFor();
+                if (i >= 0) {
+                    times[j][i] = System.nanoTime() - start;
+                }
+            }
+        }
+
+        for (int j = 0; j < 2; j++) {
+            long[] measured = times[j].clone();
+            Arrays.sort(measured);
+            System.out.printf("%s: median %.1f ms, min %.1f ms, mean %.1f ms%n",
+                    j == 0 ? "Without archive" : "With archive", measured[iterations / 2] / 1e6, measured[0] / 1e6,
+                    Arrays.stream(measured).average().orElse(0) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.JavaParserMainClassFinder;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.MainClassScanner;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compares main class detection of Java sources by {@link MainClassScanner} and by JavaParser. Sources are taken
+ * from given directory (for example <code>files</code> and <code>solutions</code> of extracted packages). Results are
+ * compared before measurements, time of this pass includes loading of JavaParser classes. Sources which scanner
+ * can't handle and sources with different results are reported.
+ * Usage: <code>MainClassDetectionBenchmark &lt;sources directory&gt; [iterations]</code>
+ */
+public class MainClassDetectionBenchmark {
+    public static void main(String[] args) throws Exception {
+        Path directory = Paths.get(args[0]);
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<Path> paths;
+        try (Stream<Path> files = Files.walk(directory)) {
+            paths = files.filter(path -> path.toString().endsWith(".java")).sorted().collect(Collectors.toList());
+        }
+        List<String> sources = new ArrayList<>();
+        long totalSize = 0;
+        for (Path path : paths) {
+            byte[] content = Files.readAllBytes(path);
+            sources.add(new String(content, Charset.defaultCharset()));
+            totalSize += content.length;
+        }
+        System.out.printf("Sources: %d files, %.1f KB%n", sources.size(), totalSize / 1024.0);
+
+        long firstStart = System.nanoTime();
+        for (int i = 0; i < sources.size(); i++) {
+            MainClassScanner.Result result = MainClassScanner.scan(sources.get(i));
+            String parsed = JavaParserMainClassFinder.findMainClassName(sources.get(i), paths.get(i));
+            if (result.isAmbiguous()) {
+                System.out.printf("%s: ambiguous for scanner, parsed as %s%n", paths.get(i).getFileName(), parsed);
+            } else if (!Objects.equals(result.getClassName(), parsed)) {
+                System.out.printf("%s: scanned as %s, parsed as %s%n", paths.get(i).getFileName(),
+                        result.getClassName(), parsed);
+            }
+        }
+        System.out.printf("First pass with JavaParser loading: %.1f ms%n", (System.nanoTime() - firstStart) / 1e6);
+
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            for (String source : sources) {
+                MainClassScanner.scan(source);
+            }
+            double scanning = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            for (int j = 0; j < sources.size(); j++) {
+                JavaParserMainClassFinder.findMainClassName(sources.get(j), paths.get(j));
+            }
+            double parsing = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("Iteration %d: scanning %.3f ms, parsing %.3f ms (%.1f times faster)%n", i + 1,
+                    scanning, parsing, parsing / scanning);
+        }
+    }
+}
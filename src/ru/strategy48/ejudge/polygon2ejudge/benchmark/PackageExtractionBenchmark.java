@@ -0,0 +1,112 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import net.lingala.zip4j.ZipFile;
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.ExtractionResult;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.StreamingZipExtractor;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.ConnectionSettings;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.fake.FakePolygonServer;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageDownload;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compares two-phase package preparation (download archive, then extract it with zip4j) with extraction from
+ * HTTP stream. Synthetic package with tests is served by {@link FakePolygonServer}.
+ * Usage: <code>PackageExtractionBenchmark [tests size MB] [bandwidth MB/s] [iterations]</code>
+ */
+public class PackageExtractionBenchmark {
+    private static final String KEY = "benchmark";
+    private static final String SECRET = "benchmark";
+    private static final int CONTEST_ID = 1;
+    private static final int PACKAGE_ID = 1;
+    private static final int TEST_SIZE = 4 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int packageSize = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long bandwidth = args.length > 1 ? Long.parseLong(args[1]) << 20 : 0;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        Path workDirectory = Files.createTempDirectory("polygon2ejudge-extraction");
+        try {
+            Path fixtures = Paths.get(workDirectory.toString(), "fixtures");
+            Path archive = Paths.get(fixtures.toString(), String.valueOf(CONTEST_ID), "problem",
+                    PACKAGE_ID + ".zip");
+            long uncompressedSize = generatePackage(archive, (long) packageSize << 20);
+            System.out.printf("Package: %.1f MB compressed, %.1f MB uncompressed%n",
+                    Files.size(archive) / (1024.0 * 1024.0), uncompressedSize / (1024.0 * 1024.0));
+
+            try (FakePolygonServer server = new FakePolygonServer(fixtures, KEY, SECRET)) {
+                server.setBandwidth(bandwidth);
+                ConnectionSettings connectionSettings = new ConnectionSettings();
+                connectionSettings.setApiUrl(server.start(0, 4));
+                connectionSettings.setRequestsPerSecond(0);
+
+                try (PolygonSession session = new PolygonSession(KEY, SECRET, connectionSettings)) {
+                    int problemId = session.getContestProblems(CONTEST_ID).get(0).getId();
+                    for (int i = 0; i < iterations; i++) {
+                        Path target = Paths.get(workDirectory.toString(), "problem");
+
+                        long start = System.nanoTime();
+                        PackageDownload download = session.downloadProblemPackage(problemId, PACKAGE_ID,
+                                workDirectory);
+                        try (ZipFile zipFile = new ZipFile(download.getPath().toFile())) {
+                            zipFile.extractAll(target.toString());
+                        }
+                        Files.delete(download.getPath());
+                        long twoPhase = System.nanoTime() - start;
+                        FileUtils.deleteDirectory(target.toFile());
+
+                        start = System.nanoTime();
+                        ExtractionResult result = session.streamProblemPackage(problemId, PACKAGE_ID,
+                                input -> StreamingZipExtractor.extract(input, target));
+                        long streaming = System.nanoTime() - start;
+                        FileUtils.deleteDirectory(target.toFile());
+
+                        // Two-phase path writes and reads archive in addition to writing extracted files
+                        System.out.printf("Iteration %d: two-phase %.2f s (%.1f MB disk I/O), "
+                                        + "streaming %.2f s (%.1f MB disk I/O)%n", i + 1, twoPhase / 1e9,
+                                (2 * download.getSize() + result.getExtractedBytes()) / (1024.0 * 1024.0),
+                                streaming / 1e9, result.getExtractedBytes() / (1024.0 * 1024.0));
+                    }
+                }
+            }
+        } finally {
+            FileUtils.deleteDirectory(workDirectory.toFile());
+        }
+    }
+
+    private static long generatePackage(final Path archive, final long size) throws IOException {
+        Files.createDirectories(archive.getParent());
+        Random random = new Random(1);
+        byte[] test = new byte[TEST_SIZE];
+        long written = 0;
+
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(archive))) {
+            output.putNextEntry(new ZipEntry("problem.xml"));
+            output.write("<problem/>".getBytes());
+            output.closeEntry();
+
+            for (int i = 1; written < size; i++) {
+                // Numbers separated by spaces compress approximately like typical tests
+                for (int j = 0; j < test.length; j++) {
+                    test[j] = j % 8 == 7 ? (byte) ' ' : (byte) ('0' + random.nextInt(10));
+                }
+                output.putNextEntry(new ZipEntry(String.format("tests/%03d", i)));
+                output.write(test);
+                output.closeEntry();
+                written += test.length;
+            }
+        }
+        return written;
+    }
+}
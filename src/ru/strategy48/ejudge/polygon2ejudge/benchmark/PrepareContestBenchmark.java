@@ -0,0 +1,64 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.contest.ContestSettings;
+import ru.strategy48.ejudge.polygon2ejudge.contest.ContestUtils;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.ConnectionSettings;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.fake.FakePolygonServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Measures full contest preparation against local {@link FakePolygonServer}, so runs are reproducible and don't
+ * need Polygon credentials. Every iteration prepares contest in a fresh directory.
+ * Usage: <code>PrepareContestBenchmark &lt;fixtures&gt; &lt;contest ID&gt; &lt;serve.cfg template&gt;
+ * [jobs] [latency ms] [bandwidth KB/s] [iterations]</code>
+ */
+public class PrepareContestBenchmark {
+    private static final String KEY = "benchmark";
+    private static final String SECRET = "benchmark";
+
+    public static void main(String[] args) throws Exception {
+        Path fixtures = Paths.get(args[0]);
+        int contestId = Integer.parseInt(args[1]);
+        Path defaultConfig = Paths.get(args[2]);
+        int jobs = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long latency = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        long bandwidth = args.length > 5 ? Long.parseLong(args[5]) * 1024 : 0;
+        int iterations = args.length > 6 ? Integer.parseInt(args[6]) : 3;
+
+        try (FakePolygonServer server = new FakePolygonServer(fixtures, KEY, SECRET)) {
+            server.setLatency(latency);
+            server.setBandwidth(bandwidth);
+
+            ConnectionSettings connectionSettings = new ConnectionSettings();
+            connectionSettings.setApiUrl(server.start(0, 16));
+            connectionSettings.setRequestsPerSecond(0);
+
+            ContestSettings settings = new ContestSettings();
+            settings.setJobs(jobs);
+
+            for (int i = 0; i < iterations; i++) {
+                Path contestDirectory = Files.createTempDirectory("polygon2ejudge-benchmark");
+                long requestsBefore = server.getRequests();
+                long bytesBefore = server.getSentBytes();
+
+                long start = System.nanoTime();
+                try (PolygonSession session = new PolygonSession(KEY, SECRET, connectionSettings)) {
+                    ContestUtils.prepareContest(session, contestId, contestDirectory, "Generic", defaultConfig,
+                            'A', settings);
+                }
+                long elapsed = System.nanoTime() - start;
+
+                System.out.printf("Iteration %d: %.2f s, %d requests, %.1f MB sent%n", i + 1, elapsed / 1e9,
+                        server.getRequests() - requestsBefore,
+                        (server.getSentBytes() - bytesBefore) / (1024.0 * 1024.0));
+                FileUtils.deleteDirectory(contestDirectory.toFile());
+            }
+        }
+    }
+}
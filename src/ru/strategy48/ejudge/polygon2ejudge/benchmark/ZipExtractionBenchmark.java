@@ -0,0 +1,73 @@
+package ru.strategy48.ejudge.polygon2ejudge.benchmark;
+
+import net.lingala.zip4j.ZipFile;
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.EntryFilter;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.ParallelZipExtractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compares zip4j extraction with {@link ParallelZipExtractor} on synthetic package with many manual tests.
+ * Usage: <code>ZipExtractionBenchmark [tests count] [test size KB] [max threads] [iterations]</code>
+ */
+public class ZipExtractionBenchmark {
+    public static void main(String[] args) throws Exception {
+        int testsCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int testSize = args.length > 1 ? Integer.parseInt(args[1]) * 1024 : 64 * 1024;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        Path workDirectory = Files.createTempDirectory("polygon2ejudge-zip");
+        try {
+            Path archive = Paths.get(workDirectory.toString(), "package.zip");
+            generatePackage(archive, testsCount, testSize);
+            System.out.printf("Package: %d tests, %.1f MB compressed, %.1f MB uncompressed, %d CPUs%n", testsCount,
+                    Files.size(archive) / (1024.0 * 1024.0), (double) testsCount * testSize / (1024.0 * 1024.0),
+                    Runtime.getRuntime().availableProcessors());
+
+            Path target = Paths.get(workDirectory.toString(), "extracted");
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+                    zipFile.extractAll(target.toString());
+                }
+                System.out.printf("Iteration %d: zip4j %.2f s", i + 1, (System.nanoTime() - start) / 1e9);
+                FileUtils.deleteDirectory(target.toFile());
+
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    start = System.nanoTime();
+                    ParallelZipExtractor.extract(archive, target, EntryFilter.ALL, threads);
+                    System.out.printf(", %d threads %.2f s", threads, (System.nanoTime() - start) / 1e9);
+                    FileUtils.deleteDirectory(target.toFile());
+                }
+                System.out.println();
+            }
+        } finally {
+            FileUtils.deleteDirectory(workDirectory.toFile());
+        }
+    }
+
+    private static void generatePackage(final Path archive, final int testsCount, final int testSize)
+            throws IOException {
+        Random random = new Random(1);
+        byte[] test = new byte[testSize];
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int i = 1; i <= testsCount; i++) {
+                for (int j = 0; j < test.length; j++) {
+                    test[j] = j % 8 == 7 ? (byte) '\n' : (byte) ('0' + random.nextInt(10));
+                }
+                output.putNextEntry(new ZipEntry(String.format("tests/%04d", i)));
+                output.write(test);
+                output.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.CompilationCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.PackageCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.CompilerProfiles;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes options that control how contest problems are prepared
+ */
+public class ContestSettings {
+    private int jobs = 1;
+    private PackageCache packageCache = null;
+    private CompilationCache compilationCache = null;
+    private boolean incremental = false;
+    private boolean streamingExtraction = false;
+    private boolean selectiveExtraction = false;
+    private int extractionThreads = 1;
+    private int prefetchDepth = 0;
+    private long prefetchBudget = 2048L * 1024 * 1024;
+    private boolean largestFirst = true;
+    private boolean deltaFetch = false;
+    private boolean reuseTests = false;
+    private int verifiedTests = 0;
+    private PackageType packageType = null;
+    private int compilationThreads = Runtime.getRuntime().availableProcessors();
+    private boolean precompiledHeaders = true;
+    private CompilerProfiles compilerProfiles = new CompilerProfiles();
+    private boolean classDataSharing = false;
+    private boolean warmJvm = false;
+
+    /**
+     * Gets number of problems that are prepared concurrently
+     *
+     * @return number of worker threads
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Sets number of problems that are prepared concurrently
+     *
+     * @param jobs number of worker threads, must be positive
+     */
+    public void setJobs(final int jobs) {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("Number of jobs must be positive: " + jobs);
+        }
+        this.jobs = jobs;
+    }
+
+    /**
+     * Gets cache used for downloaded packages
+     *
+     * @return {@link PackageCache} or <code>null</code> if packages are not cached
+     */
+    public PackageCache getPackageCache() {
+        return packageCache;
+    }
+
+    /**
+     * Sets cache used for downloaded packages
+     *
+     * @param packageCache {@link PackageCache} or <code>null</code> to download packages on every run
+     */
+    public void setPackageCache(final PackageCache packageCache) {
+        this.packageCache = packageCache;
+    }
+
+    /**
+     * Gets cache used for compiled sources
+     *
+     * @return {@link CompilationCache} or <code>null</code> if compiled sources are not cached
+     */
+    public CompilationCache getCompilationCache() {
+        return compilationCache;
+    }
+
+    /**
+     * Sets cache used for compiled sources
+     *
+     * @param compilationCache {@link CompilationCache} or <code>null</code> to compile sources on every run
+     */
+    public void setCompilationCache(final CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    /**
+     * Checks if only problems with changed packages are rebuilt
+     *
+     * @return <code>true</code> if contest is synchronized incrementally
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets if only problems with changed packages are rebuilt
+     *
+     * @param incremental <code>true</code> to rebuild only problems whose latest package differs from the one
+     *                    recorded in contest state
+     */
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Checks if packages are extracted while being downloaded instead of being saved to disk first
+     *
+     * @return <code>true</code> if streaming extraction is used
+     */
+    public boolean isStreamingExtraction() {
+        return streamingExtraction;
+    }
+
+    /**
+     * Sets if packages are extracted while being downloaded. It is used only when packages cache is disabled,
+     * archives that couldn't be extracted from stream are downloaded and extracted as usual
+     *
+     * @param streamingExtraction <code>true</code> to extract packages from HTTP stream
+     */
+    public void setStreamingExtraction(final boolean streamingExtraction) {
+        this.streamingExtraction = streamingExtraction;
+    }
+
+    /**
+     * Checks if only package files referenced by <code>problem.xml</code> are extracted
+     *
+     * @return <code>true</code> if selective extraction is used
+     */
+    public boolean isSelectiveExtraction() {
+        return selectiveExtraction;
+    }
+
+    /**
+     * Sets if only package files referenced by <code>problem.xml</code> are extracted, statements, documents,
+     * compiled binaries and generated tests from package are not written to disk
+     *
+     * @param selectiveExtraction <code>true</code> to extract only required files
+     */
+    public void setSelectiveExtraction(final boolean selectiveExtraction) {
+        this.selectiveExtraction = selectiveExtraction;
+    }
+
+    /**
+     * Gets number of threads extracting single package archive
+     *
+     * @return number of extraction threads
+     */
+    public int getExtractionThreads() {
+        return extractionThreads;
+    }
+
+    /**
+     * Sets number of threads extracting single package archive. Archives are extracted with zip4j if it is
+     * <code>1</code>, otherwise entries are inflated concurrently and their CRC-32 is verified
+     *
+     * @param extractionThreads number of extraction threads
+     */
+    public void setExtractionThreads(final int extractionThreads) {
+        if (extractionThreads < 1) {
+            throw new IllegalArgumentException("Number of extraction threads must be positive: "
+                    + extractionThreads);
+        }
+        this.extractionThreads = extractionThreads;
+    }
+
+    /**
+     * Gets number of packages that are downloaded in advance while other problems are being built
+     *
+     * @return prefetch depth, <code>0</code> if prefetching is disabled
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Sets number of packages that are downloaded in advance while other problems are being built
+     *
+     * @param prefetchDepth prefetch depth, <code>0</code> to disable prefetching
+     */
+    public void setPrefetchDepth(final int prefetchDepth) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("Prefetch depth must be non-negative: " + prefetchDepth);
+        }
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Gets maximal total size of prefetched packages
+     *
+     * @return prefetch budget in bytes
+     */
+    public long getPrefetchBudget() {
+        return prefetchBudget;
+    }
+
+    /**
+     * Sets maximal total size of prefetched packages. Package larger than budget is not prefetched, it is
+     * downloaded when its problem is being built
+     *
+     * @param prefetchBudget prefetch budget in bytes, must be positive
+     */
+    public void setPrefetchBudget(final long prefetchBudget) {
+        if (prefetchBudget < 1) {
+            throw new IllegalArgumentException("Prefetch budget must be positive: " + prefetchBudget);
+        }
+        this.prefetchBudget = prefetchBudget;
+    }
+
+    /**
+     * Checks if problems with the largest packages are built first
+     *
+     * @return <code>true</code> if problems are ordered by package size, <code>false</code> if contest order is used
+     */
+    public boolean isLargestFirst() {
+        return largestFirst;
+    }
+
+    /**
+     * Sets if problems with the largest packages are built first. Package sizes are taken from contest state, so
+     * problems which weren't built yet keep contest order
+     *
+     * @param largestFirst <code>true</code> to build problems with the largest packages first
+     */
+    public void setLargestFirst(final boolean largestFirst) {
+        this.largestFirst = largestFirst;
+    }
+
+    /**
+     * Checks if changed files are fetched instead of whole package when older package of problem is cached
+     *
+     * @return <code>true</code> if delta fetch is used
+     */
+    public boolean isDeltaFetch() {
+        return deltaFetch;
+    }
+
+    /**
+     * Sets if changed files are fetched instead of whole package when older package of problem is cached. It is
+     * used only with packages cache, whole package is downloaded if changes couldn't be applied to cached package
+     *
+     * @param deltaFetch <code>true</code> to fetch only changed files
+     */
+    public void setDeltaFetch(final boolean deltaFetch) {
+        this.deltaFetch = deltaFetch;
+    }
+
+    /**
+     * Checks if tests and answers are taken from packages instead of being generated locally
+     *
+     * @return <code>true</code> if package tests are reused
+     */
+    public boolean isReuseTests() {
+        return reuseTests;
+    }
+
+    /**
+     * Sets if tests and answers are taken from packages instead of being generated locally. Tests are generated
+     * locally if package doesn't contain them
+     *
+     * @param reuseTests <code>true</code> to reuse package tests
+     */
+    public void setReuseTests(final boolean reuseTests) {
+        this.reuseTests = reuseTests;
+    }
+
+    /**
+     * Gets number of random reused tests which are generated locally and compared with package
+     *
+     * @return number of verified tests
+     */
+    public int getVerifiedTests() {
+        return verifiedTests;
+    }
+
+    /**
+     * Sets number of random reused tests which are generated locally and compared with package. Answers are
+     * checked by checker against answers of main solution
+     *
+     * @param verifiedTests number of verified tests, <code>0</code> to disable verification
+     */
+    public void setVerifiedTests(final int verifiedTests) {
+        if (verifiedTests < 0) {
+            throw new IllegalArgumentException("Number of verified tests must be non-negative: " + verifiedTests);
+        }
+        this.verifiedTests = verifiedTests;
+    }
+
+    /**
+     * Gets requested type of downloaded packages. If it wasn't set, full packages are requested when tests are
+     * reused and standard packages (without generated tests) otherwise
+     *
+     * @return {@link PackageType} of downloaded packages
+     */
+    public PackageType getPackageType() {
+        if (packageType != null) {
+            return packageType;
+        }
+        return reuseTests ? PackageType.LINUX : PackageType.STANDARD;
+    }
+
+    /**
+     * Sets type of downloaded packages. Standard package is downloaded if requested type wasn't built
+     *
+     * @param packageType {@link PackageType} of downloaded packages, <code>null</code> to choose it automatically
+     */
+    public void setPackageType(final PackageType packageType) {
+        this.packageType = packageType;
+    }
+
+    /**
+     * Gets maximal number of sources of single problem compiled simultaneously
+     *
+     * @return number of compilation threads
+     */
+    public int getCompilationThreads() {
+        return compilationThreads;
+    }
+
+    /**
+     * Sets maximal number of sources of single problem compiled simultaneously, by default it is equal to number
+     * of available processors
+     *
+     * @param compilationThreads number of compilation threads
+     */
+    public void setCompilationThreads(final int compilationThreads) {
+        if (compilationThreads < 1) {
+            throw new IllegalArgumentException("Number of compilation threads must be positive: "
+                    + compilationThreads);
+        }
+        this.compilationThreads = compilationThreads;
+    }
+
+    /**
+     * Checks if heavy headers shared by C++ sources of problem are precompiled
+     *
+     * @return <code>true</code> if headers are precompiled
+     */
+    public boolean isPrecompiledHeaders() {
+        return precompiledHeaders;
+    }
+
+    /**
+     * Sets if heavy headers shared by C++ sources of problem (such as <code>testlib.h</code>) are precompiled, it is
+     * enabled by default
+     *
+     * @param precompiledHeaders <code>true</code> to precompile headers
+     */
+    public void setPrecompiledHeaders(final boolean precompiledHeaders) {
+        this.precompiledHeaders = precompiledHeaders;
+    }
+
+    /**
+     * Gets C++ compiler profiles of source roles
+     *
+     * @return {@link CompilerProfiles}
+     */
+    public CompilerProfiles getCompilerProfiles() {
+        return compilerProfiles;
+    }
+
+    /**
+     * Sets C++ compiler profiles of source roles, by default all sources are compiled with
+     * <code>-std=c++17 -O2</code>
+     *
+     * @param compilerProfiles {@link CompilerProfiles}
+     */
+    public void setCompilerProfiles(final CompilerProfiles compilerProfiles) {
+        this.compilerProfiles = compilerProfiles;
+    }
+
+    /**
+     * Checks if Class Data Sharing archives of Java executables are created
+     *
+     * @return <code>true</code> if archives are created
+     */
+    public boolean isClassDataSharing() {
+        return classDataSharing;
+    }
+
+    /**
+     * Sets if Class Data Sharing archives of Java executables are created, so their wrapper scripts start JVM
+     * faster. It is disabled by default
+     *
+     * @param classDataSharing <code>true</code> to create archives
+     */
+    public void setClassDataSharing(final boolean classDataSharing) {
+        this.classDataSharing = classDataSharing;
+    }
+
+    /**
+     * Checks if Java executables are run by one warm JVM of problem
+     *
+     * @return <code>true</code> if warm JVM is used
+     */
+    public boolean isWarmJvm() {
+        return warmJvm;
+    }
+
+    /**
+     * Sets if Java generators, validators, checkers and solutions are run by one warm JVM of problem instead of
+     * their wrapper scripts. It is disabled by default
+     *
+     * @param warmJvm <code>true</code> to use warm JVM
+     */
+    public void setWarmJvm(final boolean warmJvm) {
+        this.warmJvm = warmJvm;
+    }
+}
@@ -0,0 +1,133 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ConfigurationException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.ProblemState;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Persistent contest state manifest: stores which package every problem directory was built from and toolchains
+ * (for example C++ compiler profiles of roles) its sources were compiled with
+ */
+public class ContestState {
+    private static final String FILE_NAME = "polygon2ejudge.properties";
+    private static final String TOOLCHAIN_PREFIX = ".toolchain.";
+
+    private final Path path;
+    private final Properties properties = new Properties();
+
+    private ContestState(final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Loads contest state from contest directory. Empty state is returned if there is no state file yet
+     *
+     * @param contestDirectory contest directory
+     * @return loaded {@link ContestState}
+     * @throws ContestException if state file couldn't be read
+     */
+    public static ContestState load(final Path contestDirectory) throws ContestException {
+        ContestState state = new ContestState(Paths.get(contestDirectory.toString(), FILE_NAME));
+        if (Files.exists(state.path)) {
+            try (Reader reader = Files.newBufferedReader(state.path)) {
+                state.properties.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new ConfigurationException(state.path, e);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Gets recorded state of given problem
+     *
+     * @param problemName problem name in Polygon
+     * @return {@link ProblemState} or <code>null</code> if problem wasn't built yet
+     */
+    public synchronized ProblemState getProblemState(final String problemName) {
+        String problemId = properties.getProperty(problemName + ".problemId");
+        String packageId = properties.getProperty(problemName + ".packageId");
+        String packageRevision = properties.getProperty(problemName + ".packageRevision");
+        String ejudgeProblemId = properties.getProperty(problemName + ".ejudgeProblemId");
+        String shortName = properties.getProperty(problemName + ".shortName");
+        String packageSize = properties.getProperty(problemName + ".packageSize", "0");
+        if (problemId == null || packageId == null || packageRevision == null || ejudgeProblemId == null
+                || shortName == null) {
+            return null;
+        }
+
+        Map<String, String> toolchains = new HashMap<>();
+        String toolchainPrefix = problemName + TOOLCHAIN_PREFIX;
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(toolchainPrefix)) {
+                toolchains.put(key.substring(toolchainPrefix.length()), properties.getProperty(key));
+            }
+        }
+
+        try {
+            return new ProblemState(Integer.parseInt(problemId), Integer.parseInt(packageId),
+                    Integer.parseInt(packageRevision), Integer.parseInt(ejudgeProblemId), shortName,
+                    Long.parseLong(packageSize), toolchains);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records state of given problem
+     *
+     * @param problemName problem name in Polygon
+     * @param state       problem state
+     */
+    public synchronized void setProblemState(final String problemName, final ProblemState state) {
+        properties.setProperty(problemName + ".problemId", String.valueOf(state.getProblemId()));
+        properties.setProperty(problemName + ".packageId", String.valueOf(state.getPackageId()));
+        properties.setProperty(problemName + ".packageRevision", String.valueOf(state.getPackageRevision()));
+        properties.setProperty(problemName + ".ejudgeProblemId", String.valueOf(state.getEjudgeProblemId()));
+        properties.setProperty(problemName + ".shortName", state.getShortName());
+        properties.setProperty(problemName + ".packageSize", String.valueOf(state.getPackageSize()));
+        state.getToolchains().forEach((key, toolchain) ->
+                properties.setProperty(problemName + TOOLCHAIN_PREFIX + key, toolchain));
+    }
+
+    /**
+     * Removes recorded state of given problem, so it will be rebuilt by next sync
+     *
+     * @param problemName problem name in Polygon
+     */
+    public synchronized void removeProblemState(final String problemName) {
+        properties.stringPropertyNames().stream()
+                .filter(key -> key.startsWith(problemName + "."))
+                .forEach(properties::remove);
+    }
+
+    /**
+     * Atomically writes state to contest directory
+     *
+     * @throws ContestException if state file couldn't be written
+     */
+    public synchronized void save() throws ContestException {
+        Path temporaryPath = Paths.get(path.toString() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporaryPath)) {
+                properties.store(writer, "polygon2ejudge contest state");
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FileSystemException(path, e);
+        }
+    }
+}
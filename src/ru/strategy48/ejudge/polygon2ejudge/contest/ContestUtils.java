@@ -5,16 +5,20 @@ import org.apache.commons.io.FileUtils;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
-import ru.strategy48.ejudge.polygon2ejudge.contest.compile.CPPCompiler;
-import ru.strategy48.ejudge.polygon2ejudge.contest.compile.Compiler;
-import ru.strategy48.ejudge.polygon2ejudge.contest.compile.JavaCompiler;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.PackageCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.CompilationPlan;
 import ru.strategy48.ejudge.polygon2ejudge.contest.compile.PythonCompiler;
+import ru.strategy48.ejudge.polygon2ejudge.contest.execute.JavaToolExecutor;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.*;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.*;
 import ru.strategy48.ejudge.polygon2ejudge.contest.objects.*;
 import ru.strategy48.ejudge.polygon2ejudge.contest.objects.Test;
 import ru.strategy48.ejudge.polygon2ejudge.contest.xml.*;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageDownload;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.PolygonException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.AsyncPolygonSession;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Problem;
 
@@ -22,10 +26,16 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils.*;
@@ -50,21 +60,173 @@ public class ContestUtils {
     public static void prepareContest(final PolygonSession session, final int contestId, final Path contestDirectory,
                                       final String genericProblemName, final Path defaultConfig,
                                       final char firstProblemShortName) throws PolygonException, ContestException {
+        prepareContest(session, contestId, contestDirectory, genericProblemName, defaultConfig, firstProblemShortName,
+                new ContestSettings());
+    }
+
+    /**
+     * Prepares contest: prepares all problems using worker pool and generates serve.cfg in original problems order
+     *
+     * @param session               Polygon session for API usage
+     * @param contestId             contest ID in Polygon
+     * @param contestDirectory      contest directory (there will be created <code>problems</code> directory in it)
+     * @param genericProblemName    generic problem name in default config file
+     * @param defaultConfig         default serve.cfg config path
+     * @param firstProblemShortName first problem short name (for example, 'A' or '5')
+     * @param settings              contest preparation settings
+     * @throws PolygonException if error happened while working with Polygon API
+     * @throws ContestException if error happened while preparing contest, {@link ProblemsPreparationException}
+     *                          lists all problems that failed
+     */
+    public static void prepareContest(final PolygonSession session, final int contestId, final Path contestDirectory,
+                                      final String genericProblemName, final Path defaultConfig,
+                                      final char firstProblemShortName, final ContestSettings settings)
+            throws PolygonException, ContestException {
         List<Problem> problems = session.getContestProblems(contestId);
-        int ejudgeProblemId = 0;
 
         Path problemsDirectory = Paths.get(contestDirectory.toString(), "problems");
         if (Files.notExists(problemsDirectory)) {
             createDirectory(problemsDirectory);
         }
 
-        for (Problem problem : problems) {
-            ejudgeProblemId++;
+        ContestState state = ContestState.load(contestDirectory);
+
+        ConsoleLogger.logInfo("Preparing %d problems using %d jobs", problems.size(), settings.getJobs());
+        List<Future<?>> results = new ArrayList<>(Collections.nCopies(problems.size(), null));
+        long[] estimatedSizes = new long[problems.size()];
+        List<Integer> buildOrder = new ArrayList<>();
+
+        for (int i = 0; i < problems.size(); i++) {
+            Problem problem = problems.get(i);
+            int ejudgeProblemId = i + 1;
+            String shortName = String.valueOf((char) (firstProblemShortName + ejudgeProblemId - 1));
+            Path problemPath = Paths.get(problemsDirectory.toString(), problem.getName());
+            ProblemState problemState = state.getProblemState(problem.getName());
+
+            if (settings.isIncremental() && isUpToDate(problemState, problem, problemPath, ejudgeProblemId,
+                    shortName, settings)) {
+                ConsoleLogger.logInfo("Problem %s (%s) is up to date, skipping it", shortName, problem.getName());
+                results.set(i, CompletableFuture.completedFuture(null));
+                continue;
+            }
+
+            if (problemState != null && problemState.getProblemId() == problem.getId()) {
+                estimatedSizes[i] = problemState.getPackageSize();
+            }
+            buildOrder.add(i);
+        }
+
+        if (settings.isLargestFirst()) {
+            buildOrder.sort(Comparator.comparingLong((Integer i) -> estimatedSizes[i]).reversed());
+        }
+
+        AsyncPolygonSession asyncSession = new AsyncPolygonSession(session, session.getMaxConnections());
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getJobs());
+        PackagePrefetcher prefetcher = settings.getPrefetchDepth() == 0 ? null
+                : new PackagePrefetcher(session, settings.getPackageCache(),
+                Paths.get(contestDirectory.toString(), ".prefetch"), settings.getPrefetchDepth(),
+                settings.getPrefetchBudget(), settings.getPackageType());
+        List<CompletableFuture<List<Package>>> packageLists = new ArrayList<>();
+        Map<PackageType, long[]> packageStatistics = Collections.synchronizedMap(new EnumMap<>(PackageType.class));
+
+        for (int i : buildOrder) {
+            Problem problem = problems.get(i);
+            int ejudgeProblemId = i + 1;
+            String shortName = String.valueOf((char) (firstProblemShortName + ejudgeProblemId - 1));
             Path problemPath = Paths.get(problemsDirectory.toString(), problem.getName());
-            createDirectory(problemPath);
+            long estimatedSize = estimatedSizes[i];
+
+            CompletableFuture<List<Package>> packages = asyncSession.getProblemPackages(problem.getId());
+            packageLists.add(packages);
+
+            // problem is registered before its job starts, otherwise job could download package itself and
+            // prefetched copy would never be used or released
+            if (prefetcher != null) {
+                prefetcher.schedule(problem.getId(), packages, estimatedSize);
+            }
+            results.set(i, executor.submit(() -> {
+                try {
+                    if (settings.isIncremental() && Files.exists(problemPath)) {
+                        ConsoleLogger.logInfo("Problem %s (%s) was changed, rebuilding it", shortName,
+                                problem.getName());
+                        try {
+                            FileUtils.deleteDirectory(problemPath.toFile());
+                        } catch (IOException e) {
+                            throw new FileSystemException(problemPath, e);
+                        }
+                    }
+                    if (problem.isModified()) {
+                        ConsoleLogger.logInfo("Problem %s (%s) has uncommitted changes, they are not included in "
+                                + "package", shortName, problem.getName());
+                    }
+
+                    state.removeProblemState(problem.getName());
+                    state.save();
+
+                    createDirectory(problemPath);
+                    PreparedArchive prepared = prepareProblem(session, problem.getId(), problemPath,
+                            genericProblemName, ejudgeProblemId, shortName, settings, packages, prefetcher);
+                    Package builtPackage = prepared.getBuiltPackage();
+
+                    state.setProblemState(problem.getName(), new ProblemState(problem.getId(),
+                            builtPackage.getId(), builtPackage.getRevision(), ejudgeProblemId, shortName,
+                            prepared.getSize() == 0 ? estimatedSize : prepared.getSize(), prepared.getToolchains()));
+                    state.save();
+
+                    synchronized (packageStatistics) {
+                        long[] statistics = packageStatistics.computeIfAbsent(prepared.getType(), type -> new long[2]);
+                        statistics[0]++;
+                        statistics[1] += prepared.getSize();
+                    }
+                    return null;
+                } finally {
+                    if (prefetcher != null) {
+                        prefetcher.release(problem.getId());
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+        asyncSession.close();
+
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < problems.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    String problemName = problems.get(i).getName();
+                    ConsoleLogger.logError(e.getCause(), "Problem %s failed", problemName);
+                    failures.put(problemName, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            packageLists.forEach(packages -> packages.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while waiting for problems preparation", e);
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.close();
+            }
+        }
+
+        session.logStatistics();
+        packageStatistics.forEach((type, statistics) -> ConsoleLogger.logInfo(
+                "Packages of type %s: %d problems, %d bytes in archives", type.getName(), statistics[0],
+                statistics[1]));
+        if (prefetcher != null) {
+            prefetcher.logStatistics();
+        }
+        if (settings.getPackageCache() != null) {
+            settings.getPackageCache().logStatistics();
+        }
+        if (settings.getCompilationCache() != null) {
+            settings.getCompilationCache().logStatistics();
+        }
 
-            prepareProblem(session, problem.getId(), problemPath, genericProblemName, ejudgeProblemId,
-                    String.valueOf((char) (firstProblemShortName + ejudgeProblemId - 1)));
+        if (!failures.isEmpty()) {
+            throw new ProblemsPreparationException(failures);
         }
 
         Path configDirectory = Paths.get(contestDirectory.toString(), "conf");
@@ -107,17 +269,62 @@ public class ContestUtils {
                                       final String genericProblemName, final int ejudgeProblemId,
                                       final String shortName)
             throws PolygonException, ContestException {
+        prepareProblem(session, problemId, problemDirectory, genericProblemName, ejudgeProblemId, shortName,
+                new ContestSettings());
+    }
+
+    /**
+     * Prepares problem: compiles executables, generates tests and answers, generates valuer.cfg and problem.cfg
+     *
+     * @param session            Polygon session
+     * @param problemId          problem ID in Polygon
+     * @param problemDirectory   problem directory (there will be created <code>tests</code> directory and other files)
+     * @param genericProblemName generic problem name in default eJudge config
+     * @param ejudgeProblemId    problem ID in contest
+     * @param shortName          short problem name (for example A, B, C, etc.)
+     * @param settings           contest preparation settings
+     * @return {@link Package} problem was built from
+     * @throws PolygonException if error happened while working with Polygon API
+     * @throws ContestException if error happened while preparing problem
+     */
+    public static Package prepareProblem(final PolygonSession session, final int problemId, final Path problemDirectory,
+                                      final String genericProblemName, final int ejudgeProblemId,
+                                      final String shortName, final ContestSettings settings)
+            throws PolygonException, ContestException {
+        return prepareProblem(session, problemId, problemDirectory, genericProblemName, ejudgeProblemId, shortName,
+                settings, null, null).getBuiltPackage();
+    }
+
+    private static PreparedArchive prepareProblem(final PolygonSession session, final int problemId,
+                                                  final Path problemDirectory, final String genericProblemName,
+                                                  final int ejudgeProblemId, final String shortName,
+                                                  final ContestSettings settings,
+                                                  final CompletableFuture<List<Package>> packageList,
+                                                  final PackagePrefetcher prefetcher)
+            throws PolygonException, ContestException {
         ConsoleLogger.logInfo("=== PREPARING PROBLEM %s ===%n", shortName);
 
-        int packageId = prepareArchive(session, problemId, problemDirectory);
+        PreparedArchive prepared = prepareArchive(session, problemId, problemDirectory, settings, packageList,
+                prefetcher);
+        int packageId = prepared.getBuiltPackage().getId();
 
         Path downloadedProblemDirectory = Paths.get(problemDirectory.toString(), String.valueOf(packageId));
 
         ProblemConfig config = getProblemConfig(downloadedProblemDirectory);
-        prepareExecutables(downloadedProblemDirectory, config);
-
-        prepareTests(downloadedProblemDirectory, config);
-        prepareAnswers(downloadedProblemDirectory, config);
+        boolean reuseTests = settings.isReuseTests() && hasPackageTests(downloadedProblemDirectory, config);
+        CompilationPlan plan = prepareExecutables(downloadedProblemDirectory, config,
+                !reuseTests || settings.getVerifiedTests() > 0, settings);
+        prepared.setToolchains(plan.getToolchains());
+
+        try (JavaToolExecutor executor = settings.isWarmJvm() && !plan.getJavaMainClasses().isEmpty()
+                ? new JavaToolExecutor(problemDirectory, plan.getJavaMainClasses()) : null) {
+            if (reuseTests) {
+                reusePackageTests(downloadedProblemDirectory, config, settings.getVerifiedTests(), executor);
+            } else {
+                prepareTests(downloadedProblemDirectory, config, executor);
+                prepareAnswers(downloadedProblemDirectory, config, executor);
+            }
+        }
 
         if (config.getGroups() != null) {
             prepareGroups(downloadedProblemDirectory, config);
@@ -127,60 +334,229 @@ public class ContestUtils {
 
         cleanUp(downloadedProblemDirectory);
         ConsoleLogger.logInfo("Problem %s is done!", shortName);
+
+        return prepared;
     }
 
-    private static int prepareArchive(final PolygonSession session, final int problemId, final Path problemDirectory)
+    private static List<Package> awaitPackageList(final CompletableFuture<List<Package>> packageList)
+            throws PolygonException, ContestException {
+        try {
+            return new ArrayList<>(packageList.get());
+        } catch (InterruptedException e) {
+            packageList.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while getting packages list", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PolygonException) {
+                throw (PolygonException) e.getCause();
+            }
+            throw new ContestException("couldn't get packages list", e.getCause());
+        }
+    }
+
+    private static boolean isUpToDate(final ProblemState state, final Problem problem, final Path problemDirectory,
+                                      final int ejudgeProblemId, final String shortName,
+                                      final ContestSettings settings) {
+        return state != null && state.getProblemId() == problem.getId()
+                && state.getPackageRevision() == problem.getLatestPackage()
+                && state.getEjudgeProblemId() == ejudgeProblemId && state.getShortName().equals(shortName)
+                && Files.exists(Paths.get(problemDirectory.toString(), "problem.cfg"))
+                && Arrays.stream(CompilationPlan.Role.values()).allMatch(role -> {
+                    String toolchain = state.getToolchains().get("cpp." + role.getName());
+                    String interpreter = state.getToolchains().get("python." + role.getName());
+                    return (toolchain == null || toolchain.equals(settings.getCompilerProfiles().get(role).toString()))
+                            && (interpreter == null || interpreter.equals(findPythonInterpreter(settings, role)));
+                });
+    }
+
+    private static String findPythonInterpreter(final ContestSettings settings, final CompilationPlan.Role role) {
+        try {
+            return PythonCompiler.getInstance(settings.getCompilerProfiles().getPythonInterpreter(role))
+                    .getInterpreter().toString();
+        } catch (ContestException e) {
+            // problem is rebuilt and preparation reports missing interpreter
+            return null;
+        }
+    }
+
+    private static PreparedArchive prepareArchive(final PolygonSession session, final int problemId,
+                                                  final Path problemDirectory, final ContestSettings settings,
+                                                  final CompletableFuture<List<Package>> packageList,
+                                                  final PackagePrefetcher prefetcher)
             throws PolygonException, ContestException {
         ConsoleLogger.logInfo("=== PREPARING ARCHIVE ===");
 
         ConsoleLogger.logInfo("Getting packages list for problem %d\n", problemId);
-        List<Package> packages = session.getProblemPackages(problemId);
+        List<Package> packages = packageList == null ? session.getProblemPackages(problemId)
+                : awaitPackageList(packageList);
         packages.sort(Comparator.comparingInt(Package::getId).reversed());
 
-        int packageId = packages.get(0).getId();
+        Package latestPackage = packages.get(0);
+        int packageId = latestPackage.getId();
+        PackageCache cache = settings.getPackageCache();
 
-        ConsoleLogger.logInfo("Downloading package %d for problem %d to %s\n", packageId, problemId,
-                problemDirectory.toString());
-        Path archivePath = session.saveProblemPackageToFile(problemId, packageId, problemDirectory);
+        PackageType packageType = settings.getPackageType().availableFor(latestPackage);
+        if (packageType != settings.getPackageType()) {
+            ConsoleLogger.logInfo("Package %d for problem %d has no %s package, using %s package", packageId,
+                    problemId, settings.getPackageType().getName(), packageType.getName());
+        }
 
+        Path extractDirectory = Paths.get(problemDirectory.toString(), String.valueOf(packageId));
+        Path prefetchedPath = prefetcher == null ? null : prefetcher.awaitPackage(problemId, packageId, packageType);
+        if (cache != null && prefetchedPath == null && settings.isDeltaFetch()
+                && DeltaFetcher.fetchPackage(session, cache, problemId, packages, packageType, extractDirectory)) {
+            return new PreparedArchive(latestPackage, packageType, 0);
+        }
+        if (cache == null && prefetchedPath == null && settings.isStreamingExtraction()
+                && extractFromStream(session, problemId, packageId, packageType, extractDirectory,
+                settings.isSelectiveExtraction(), settings.isReuseTests())) {
+            return new PreparedArchive(latestPackage, packageType, 0);
+        }
+
+        Path archivePath;
+        if (prefetchedPath != null) {
+            archivePath = prefetchedPath;
+        } else if (cache != null) {
+            archivePath = cache.acquirePackage(session, problemId, packageId, packageType);
+        } else {
+            ConsoleLogger.logInfo("Downloading %s package %d for problem %d to %s\n", packageType.getName(),
+                    packageId, problemId, problemDirectory.toString());
+            PackageDownload download = session.downloadProblemPackage(problemId, packageId, packageType,
+                    problemDirectory);
+            archivePath = download.getPath();
+            ConsoleLogger.logInfo("Downloaded package %d: %d bytes in %.2f s (%.2f MB/s), SHA-256 %s", packageId,
+                    download.getSize(), download.getElapsedNanos() / 1e9, download.getThroughput(),
+                    download.getSha256());
+        }
+
+        long archiveSize;
         ConsoleLogger.logInfo("Extracting archive");
         try {
-            ZipFile zipFile = new ZipFile(archivePath.toFile());
-            zipFile.extractAll(Paths.get(problemDirectory.toString(), String.valueOf(packageId)).toString());
+            archiveSize = Files.size(archivePath);
+            int threads = settings.getExtractionThreads();
+            if (settings.isSelectiveExtraction()) {
+                ZipFileExtractor.extractEntry(archivePath, ProblemFilesFilter.PROBLEM_XML, extractDirectory);
+                ProblemFilesFilter filter = new ProblemFilesFilter(getProblemConfig(extractDirectory),
+                        settings.isReuseTests());
+                ExtractionResult result = threads > 1
+                        ? ParallelZipExtractor.extract(archivePath, extractDirectory, filter, threads)
+                        : ZipFileExtractor.extract(archivePath, extractDirectory, filter);
+                logExtraction(packageId, result, filter);
+            } else if (threads > 1) {
+                logExtraction(packageId, ParallelZipExtractor.extract(archivePath, extractDirectory,
+                        EntryFilter.ALL, threads), null);
+            } else {
+                ZipFile zipFile = new ZipFile(archivePath.toFile());
+                zipFile.extractAll(extractDirectory.toString());
+            }
         } catch (IOException e) {
             throw new FileSystemException(archivePath, e);
+        } finally {
+            if (prefetchedPath != null) {
+                prefetcher.release(problemId);
+            } else if (cache != null) {
+                cache.release(problemId, packageId, packageType);
+            }
         }
 
-        ConsoleLogger.logInfo("Deleting archive file");
-        deleteFile(archivePath);
+        if (cache == null && prefetchedPath == null) {
+            ConsoleLogger.logInfo("Deleting archive file");
+            deleteFile(archivePath);
+        }
 
-        return packageId;
+        return new PreparedArchive(latestPackage, packageType, archiveSize);
     }
 
-    private static void prepareExecutables(final Path problemDirectory, final ProblemConfig config)
+    private static boolean extractFromStream(final PolygonSession session, final int problemId,
+                                             final int packageId, final PackageType type,
+                                             final Path extractDirectory,
+                                             final boolean selective, final boolean includeTests)
             throws ContestException {
+        ConsoleLogger.logInfo("Downloading and extracting %s package %d for problem %d to %s", type.getName(),
+                packageId, problemId, extractDirectory.toString());
+        try {
+            ProblemFilesFilter filter = selective ? new ProblemFilesFilter(includeTests) : null;
+            ExtractionResult result = session.streamProblemPackage(problemId, packageId, type,
+                    input -> StreamingZipExtractor.extract(input, extractDirectory,
+                            filter == null ? EntryFilter.ALL : filter));
+            logExtraction(packageId, result, filter);
+            return true;
+        } catch (PolygonException e) {
+            ConsoleLogger.logError(e, "Couldn't extract package %d from stream, downloading archive", packageId);
+        }
+
+        try {
+            FileUtils.deleteDirectory(extractDirectory.toFile());
+        } catch (IOException e) {
+            throw new FileSystemException(extractDirectory, e);
+        }
+        return false;
+    }
+
+    private static void logExtraction(final int packageId, final ExtractionResult result,
+                                      final ProblemFilesFilter filter) {
+        int files = result.getEntries();
+        long bytes = result.getExtractedBytes();
+        int skippedFiles = result.getSkippedEntries();
+        long skippedBytes = result.getSkippedBytes();
+        if (filter != null) {
+            files -= filter.getPrunedEntries();
+            bytes -= filter.getPrunedBytes();
+            skippedFiles += filter.getPrunedEntries();
+            skippedBytes += filter.getPrunedBytes();
+        }
+
+        ConsoleLogger.logInfo("Extracted package %d: %d files, %d bytes in %.2f s", packageId, files, bytes,
+                result.getElapsedNanos() / 1e9);
+        if (filter != null) {
+            ConsoleLogger.logInfo("Skipped %d files, %d bytes not referenced by problem.xml (%d bytes were "
+                    + "extracted before problem.xml and removed)", skippedFiles, skippedBytes,
+                    filter.getPrunedBytes());
+        }
+    }
+
+    private static CompilationPlan prepareExecutables(final Path problemDirectory, final ProblemConfig config,
+                                                      final boolean mainSolution,
+                                                      final ContestSettings settings) throws ContestException {
         ConsoleLogger.logInfo("=== PREPARING EXECUTABLES ===");
 
+        CompilationPlan plan = new CompilationPlan(problemDirectory.getParent(), settings.getCompilationCache(),
+                settings.isPrecompiledHeaders(), settings.getCompilerProfiles(), settings.isClassDataSharing());
         for (ProblemFile resource : config.getResources()) {
             Path fromPath = Paths.get(problemDirectory.toString(), resource.getPath().toString());
             Path toPath = Paths.get(problemDirectory.getParent().toString(), fromPath.getFileName().toString());
             copyFile(fromPath, toPath);
+            plan.addResource(toPath);
         }
 
         for (ProblemFile executable : config.getExecutables()) {
-            Path fromPath = Paths.get(problemDirectory.toString(), executable.getPath().toString());
-            Path toPath = Paths.get(problemDirectory.getParent().toString(), fromPath.getFileName().toString());
-            copyFile(fromPath, toPath);
-
-            compileCode(toPath, executable.getType());
-//            if (executable.getType().contains("cpp")) {
-//                compileCode(toPath, true);
-//            }
+            addToPlan(plan, problemDirectory, executable, CompilationPlan.Role.EXECUTABLE);
+        }
+        if (config.getValidators() != null) {
+            for (ProblemFile validator : config.getValidators()) {
+                addToPlan(plan, problemDirectory, validator, CompilationPlan.Role.VALIDATOR);
+            }
+        }
+        if (config.getInteractor() != null) {
+            addToPlan(plan, problemDirectory, config.getInteractor(), CompilationPlan.Role.INTERACTOR);
+        }
+        addToPlan(plan, problemDirectory, config.getChecker(), CompilationPlan.Role.CHECKER);
+        if (mainSolution) {
+            addToPlan(plan, problemDirectory, getMainSolution(config), CompilationPlan.Role.MAIN_SOLUTION);
         }
+
+        plan.execute(settings.getCompilationThreads());
+        plan.getToolchains().forEach((key, toolchain) -> ConsoleLogger.logInfo("Toolchain %s: %s", key, toolchain));
+        return plan;
     }
 
-    private static void prepareTests(final Path problemDirectory, final ProblemConfig config)
-            throws ContestException {
+    private static void addToPlan(final CompilationPlan plan, final Path problemDirectory, final ProblemFile file,
+                                  final CompilationPlan.Role role) {
+        plan.add(Paths.get(problemDirectory.toString(), file.getPath().toString()), file.getType(), role);
+    }
+
+    private static void prepareTests(final Path problemDirectory, final ProblemConfig config,
+                                     final JavaToolExecutor executor) throws ContestException {
         ConsoleLogger.logInfo("=== PREPARING TESTS ===");
 
         createDirectory(Paths.get(problemDirectory.getParent().toString(), "tests"));
@@ -208,25 +584,17 @@ public class ContestUtils {
                     String.format(testNameFormat, i + 1)));
 
             if (!executedMultigenScripts.contains(config.getTests().get(i).getCmd())) {
-                executeScript(config.getTests().get(i).getCmd(), problemDirectory.getParent(), null, testFile);
+                executeScript(config.getTests().get(i).getCmd(), problemDirectory.getParent(), null, testFile,
+                        executor);
                 executedMultigenScripts.add(config.getTests().get(i).getCmd());
             }
 
             String fromFile = config.getTests().get(i).getFromFile();
             if (fromFile != null) {
-                if (!exists(Paths.get(problemDirectory.getParent().toString(), fromFile))) {
-                    for (int zeros = 1; zeros <= 5; zeros++) {
-                        String format = "%0" + zeros + "d";
-                        fromFile = String.format(format, Integer.parseInt(fromFile));
-                        if (exists(Paths.get(problemDirectory.getParent().toString(), fromFile))) {
-                            break;
-                        }
-                    }
-                    if (!exists(Paths.get(problemDirectory.getParent().toString(), fromFile))) {
-                        throw new ContestException("There is no test file, aborting!");
-                    }
+                Path from = findMultigenTest(problemDirectory.getParent(), fromFile);
+                if (from == null) {
+                    throw new ContestException("There is no test file, aborting!");
                 }
-                Path from = Paths.get(problemDirectory.getParent().toString(), fromFile);
                 Path to = testFile.toAbsolutePath();
 
                 deleteFile(to);
@@ -249,7 +617,7 @@ public class ContestUtils {
                     if (group != null) {
                         validatorScript += " --group " + group;
                     }
-                    executeScript(validatorScript, problemDirectory.getParent(), testPath, null);
+                    executeScript(validatorScript, problemDirectory.getParent(), testPath, null, executor);
                 }
             }
         }
@@ -263,60 +631,172 @@ public class ContestUtils {
         }
     }
 
-    private static void prepareAnswers(final Path problemDirectory, final ProblemConfig config)
+    private static Path findMultigenTest(final Path directory, final String fromFile) {
+        if (exists(Paths.get(directory.toString(), fromFile))) {
+            return Paths.get(directory.toString(), fromFile);
+        }
+        for (int zeros = 1; zeros <= 5; zeros++) {
+            String fileName = String.format("%0" + zeros + "d", Integer.parseInt(fromFile));
+            if (exists(Paths.get(directory.toString(), fileName))) {
+                return Paths.get(directory.toString(), fileName);
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasPackageTests(final Path problemDirectory, final ProblemConfig config) {
+        for (int i = 0; i < config.getTests().size(); i++) {
+            if (!exists(Paths.get(problemDirectory.toString(), String.format(config.getInputFilePattern(), i + 1)))
+                    || !exists(Paths.get(problemDirectory.toString(),
+                    String.format(config.getOutputFilePattern(), i + 1)))) {
+                ConsoleLogger.logInfo("Package doesn't contain test #%d or its answer, generating tests locally",
+                        i + 1);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void reusePackageTests(final Path problemDirectory, final ProblemConfig config,
+                                          final int verifiedTests, final JavaToolExecutor executor)
             throws ContestException {
-        ConsoleLogger.logInfo("=== PREPARING TESTS ANSWERS ===");
+        ConsoleLogger.logInfo("=== REUSING PACKAGE TESTS ===");
 
         int testCount = config.getTests().size();
         String testNameFormat = getIntegerFormat(testCount);
+        createDirectory(Paths.get(problemDirectory.getParent().toString(), "tests"));
+        for (int i = 0; i < testCount; i++) {
+            ConsoleLogger.logInfo("Copying test #%d with answer", i + 1);
+
+            Path to = Paths.get(problemDirectory.getParent().toString(), "tests",
+                    String.format(testNameFormat, i + 1));
+            copyFileCorrectingLineBreaks(Paths.get(problemDirectory.toString(),
+                    String.format(config.getInputFilePattern(), i + 1)), to);
+            copyFileCorrectingLineBreaks(Paths.get(problemDirectory.toString(),
+                    String.format(config.getOutputFilePattern(), i + 1)), Paths.get(to + ".a"));
+        }
 
-        Path checkerFrom = Paths.get(problemDirectory.toString(), config.getChecker().getPath().toString());
-        String checkerType = config.getChecker().getType();
+        if (verifiedTests > 0) {
+            verifyPackageTests(problemDirectory, config, Math.min(verifiedTests, testCount), executor);
+        }
+    }
 
-        String interactorName = null;
-        if (config.getInteractor() != null) {
-            interactorName = removeExtension(config.getInteractor().getPath().getFileName().toString());
+    private static void verifyPackageTests(final Path problemDirectory, final ProblemConfig config,
+                                           final int verifiedTests, final JavaToolExecutor executor)
+            throws ContestException {
+        ConsoleLogger.logInfo("=== VERIFYING PACKAGE TESTS ===");
+
+        int testCount = config.getTests().size();
+        String testNameFormat = getIntegerFormat(testCount);
+        Path testsDir = Paths.get(problemDirectory.getParent().toString(), "tests");
+        Path verifyDir = Paths.get(problemDirectory.toString(), "verify");
+        createDirectory(verifyDir);
+
+        List<Integer> sample = new ArrayList<>();
+        for (int i = 0; i < testCount; i++) {
+            sample.add(i);
         }
+        Collections.shuffle(sample);
+        sample = new ArrayList<>(sample.subList(0, verifiedTests));
+        Collections.sort(sample);
 
-        Path checkerTo = Paths.get(problemDirectory.getParent().toString(), checkerFrom.getFileName().toString());
-        String fileWithoutExtension = removeExtension(checkerTo.getFileName().toString());
+        List<String> divergences = new ArrayList<>();
+        Set<String> executedMultigenScripts = new HashSet<>();
+        for (int i : sample) {
+            Test test = config.getTests().get(i);
+            if (test.getMethod().equals(GenerationMethod.MANUAL)) {
+                continue;
+            }
+
+            ConsoleLogger.logInfo("Generating test #%d for verification", i + 1);
+            Path generated = createFile(Paths.get(verifyDir.toString(), String.format(testNameFormat, i + 1)));
+            if (test.getFromFile() == null || !executedMultigenScripts.contains(test.getCmd())) {
+                executeScript(test.getCmd(), problemDirectory.getParent(), null, generated, executor);
+                executedMultigenScripts.add(test.getCmd());
+            }
+            if (test.getFromFile() != null) {
+                generated = findMultigenTest(problemDirectory.getParent(), test.getFromFile());
+                if (generated == null) {
+                    throw new ContestException("There is no test file, aborting!");
+                }
+            }
+
+            if (!haveSameLines(generated, Paths.get(testsDir.toString(), String.format(testNameFormat, i + 1)))) {
+                divergences.add("test #" + (i + 1));
+            }
+        }
+
+        for (Test test : config.getTests()) {
+            if (test.getFromFile() != null && executedMultigenScripts.contains(test.getCmd())) {
+                Path multigenTest = findMultigenTest(problemDirectory.getParent(), test.getFromFile());
+                if (multigenTest != null) {
+                    deleteFile(multigenTest);
+                }
+            }
+        }
 
-        deleteFile(checkerTo);
-        deleteFile(Paths.get(checkerTo.getParent().toString(), fileWithoutExtension));
-        copyFile(checkerFrom, checkerTo);
+        if (config.getInteractor() != null) {
+            ConsoleLogger.logInfo("Problem is interactive, answers are not verified");
+        } else {
+            String checkerName = removeExtension(config.getChecker().getPath().getFileName().toString());
+            Path solution = getMainSolution(config).getPath().getFileName();
+            for (int i : sample) {
+                ConsoleLogger.logInfo("Checking answer for test #%d", i + 1);
+                String testName = String.format(testNameFormat, i + 1);
+                Path answer = createFile(Paths.get(verifyDir.toString(), testName + ".a"));
+                executeScript(removeExtension(solution.getFileName().toString()), problemDirectory.getParent(),
+                        Paths.get(testsDir.toString(), testName), answer, executor);
+
+                try {
+                    executeScript(String.format("%s tests/%s %s/verify/%s.a tests/%s.a", checkerName, testName,
+                            problemDirectory.getFileName(), testName, testName), problemDirectory.getParent(),
+                            null, null, executor);
+                } catch (ScriptException e) {
+                    divergences.add("answer #" + (i + 1));
+                }
+            }
+        }
 
-        if (!compileCode(checkerTo, checkerType)) {
-            throw new UnsupportedLanguageException(checkerType);
+        if (!divergences.isEmpty()) {
+            throw new ContestException("package differs from locally generated tests: "
+                    + String.join(", ", divergences));
         }
-//        if (checkerType.contains("cpp")) {
-//            compileCode(checkerTo, true);
-//        } else {
-//            throw new UnsupportedLanguageException(checkerType);
-//        }
+        ConsoleLogger.logInfo("Verified %d of %d tests, package matches locally generated tests", verifiedTests,
+                testCount);
+    }
 
-        String solutionDir = null;
-        String solutionType = "";
-        for (int i = 0; i < config.getSolutions().size(); i++) {
-            Solution solution = config.getSolutions().get(i);
+    private static boolean haveSameLines(final Path first, final Path second) throws ContestException {
+        try {
+            return Files.readAllLines(first, StandardCharsets.ISO_8859_1)
+                    .equals(Files.readAllLines(second, StandardCharsets.ISO_8859_1));
+        } catch (IOException e) {
+            throw new FileSystemException(first, second, e);
+        }
+    }
+
+    private static ProblemFile getMainSolution(final ProblemConfig config) throws ContestException {
+        for (Solution solution : config.getSolutions()) {
             if (solution.getTag().equals("main")) {
-                solutionDir = solution.getFile().getPath().toString();
-                solutionType = solution.getFile().getType();
-                break;
+                return solution.getFile();
             }
         }
+        throw new ContestException("there is no main solution");
+    }
 
-        Path from = Paths.get(problemDirectory.toString(), solutionDir);
-        Path to = Paths.get(problemDirectory.getParent().toString(), from.getFileName().toString());
+    private static void prepareAnswers(final Path problemDirectory, final ProblemConfig config,
+                                       final JavaToolExecutor executor) throws ContestException {
+        ConsoleLogger.logInfo("=== PREPARING TESTS ANSWERS ===");
+
+        int testCount = config.getTests().size();
+        String testNameFormat = getIntegerFormat(testCount);
 
-        copyFile(from, to);
-        if (!compileCode(to, solutionType)) {
-            throw new UnsupportedLanguageException(solutionType);
+        String interactorName = null;
+        if (config.getInteractor() != null) {
+            interactorName = removeExtension(config.getInteractor().getPath().getFileName().toString());
         }
-//        if (solutionType.contains("cpp")) {
-//            compileCode(to, false);
-//        } else {
-//            throw new UnsupportedLanguageException(solutionType);
-//        }
+
+        Path to = Paths.get(problemDirectory.getParent().toString(),
+                getMainSolution(config).getPath().getFileName().toString());
 
         Path testsDir = Paths.get(problemDirectory.getParent().toString(), "tests");
         for (int i = 0; i < testCount; i++) {
@@ -327,7 +807,8 @@ public class ContestUtils {
             createFile(outputFile);
 
             if (interactorName == null) {
-                executeScript(removeExtension(to.getFileName().toString()), problemDirectory.getParent(), inputFile, outputFile);
+                executeScript(removeExtension(to.getFileName().toString()), problemDirectory.getParent(), inputFile,
+                        outputFile, executor);
             } else {
                 executeScript(String.format("java -Xmx512M -Xss64M -DONLINE_JUDGE=true -Duser.language=en -Duser.region=US -Duser.variant=US -jar %s/files/CrossRun.jar \"%s tests/%s tests/%s\" \"%s\"", problemDirectory.getFileName().toString(), interactorName, inputFile.getFileName(), outputFile.getFileName(), removeExtension(to.getFileName().toString())), problemDirectory.getParent(), null, null);
             }
@@ -468,6 +949,16 @@ public class ContestUtils {
         return fileName.substring(0, fileName.lastIndexOf('.'));
     }
 
+    private static void executeScript(final String cmd, final Path workingDirectory,
+                                      final Path inputRedirection, final Path outputRedirection,
+                                      final JavaToolExecutor executor) throws ContestException {
+        if (executor != null && executor.execute(cmd, workingDirectory, inputRedirection, outputRedirection)) {
+            ConsoleLogger.logInfo("Executed script in warm JVM: \"%s\"", cmd);
+            return;
+        }
+        executeScript(cmd, workingDirectory, inputRedirection, outputRedirection);
+    }
+
     private static void executeScript(final String cmd, final Path workingDirectory,
                                       final Path inputRedirection, final Path outputRedirection)
             throws ContestException {
@@ -521,19 +1012,39 @@ public class ContestUtils {
         }
     }
 
-    private static boolean compileCode(final Path sourcePath, final String sourceType) throws ContestException {
-        Compiler compiler;
-        if (sourceType.contains("cpp")) {
-            compiler = CPPCompiler.getInstance();
-        } else if (sourceType.contains("java")) {
-            compiler = JavaCompiler.getInstance();
-        } else if (sourceType.contains("py")) {
-            compiler = PythonCompiler.getInstance();
-        } else {
-            return false;
+    /**
+     * Describes package problem was built from, type and size of its archive
+     */
+    private static class PreparedArchive {
+        private final Package builtPackage;
+        private final PackageType type;
+        private final long size;
+        private Map<String, String> toolchains = Map.of();
+
+        private PreparedArchive(final Package builtPackage, final PackageType type, final long size) {
+            this.builtPackage = builtPackage;
+            this.type = type;
+            this.size = size;
         }
 
-        compiler.compile(sourcePath);
-        return true;
+        private Package getBuiltPackage() {
+            return builtPackage;
+        }
+
+        private PackageType getType() {
+            return type;
+        }
+
+        private long getSize() {
+            return size;
+        }
+
+        private Map<String, String> getToolchains() {
+            return toolchains;
+        }
+
+        private void setToolchains(final Map<String, String> toolchains) {
+            this.toolchains = toolchains;
+        }
     }
 }
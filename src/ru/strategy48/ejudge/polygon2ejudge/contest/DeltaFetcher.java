@@ -0,0 +1,283 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest;
+
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.PackageCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.ProblemFilesFilter;
+import ru.strategy48.ejudge.polygon2ejudge.contest.extract.ZipFileExtractor;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.*;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.ProblemFile;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.ProblemConfig;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.XMLUtils;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.PolygonException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.*;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Builds extracted package directory from older cached package of the same problem, fetching only changed files
+ * through per-file Polygon API methods. All sources, resources and solutions referenced by <code>problem.xml</code>
+ * are fetched again, because modification time doesn't show changes committed after they were made and these files
+ * are small, raw inputs of manual tests are fetched and compared with cached ones.
+ * <p>
+ * Polygon API doesn't provide <code>problem.xml</code>, so it is taken from cached package. Delta is applied only
+ * if current problem state equals the latest package and nothing described by <code>problem.xml</code> (limits,
+ * tests, groups, checker, validator, interactor, names and set of files) was changed, otherwise whole package has
+ * to be downloaded
+ */
+public class DeltaFetcher {
+    private static final String TESTSET = "tests";
+
+    /**
+     * Prepares extracted directory of the latest package using older cached package
+     *
+     * @param session          Polygon session
+     * @param cache            packages cache
+     * @param problemId        problem ID
+     * @param packages         {@link List} of problem packages
+     * @param type             type of packages, only cached package of the same type is used
+     * @param extractDirectory directory to extract package to
+     * @return <code>true</code> if package was prepared, <code>false</code> if whole package should be downloaded
+     * @throws ContestException if extract directory couldn't be cleaned after failed attempt
+     */
+    public static boolean fetchPackage(final PolygonSession session, final PackageCache cache, final int problemId,
+                                       final List<Package> packages, final PackageType type,
+                                       final Path extractDirectory)
+            throws ContestException {
+        Package latestPackage = packages.stream().max(Comparator.comparingInt(Package::getId)).orElse(null);
+        if (latestPackage == null) {
+            return false;
+        }
+
+        int basePackageId = cache.findOlderPackage(problemId, latestPackage.getId(), type);
+        Package basePackage = packages.stream()
+                .filter(pack -> pack.getId() == basePackageId && pack.getState() == PackageState.READY)
+                .findFirst().orElse(null);
+        if (basePackage == null) {
+            return false;
+        }
+
+        ConsoleLogger.logInfo("Fetching changes of package %d for problem %d since cached package %d",
+                latestPackage.getId(), problemId, basePackageId);
+        try {
+            String mismatch = applyDelta(session, cache, problemId, basePackage, latestPackage, type,
+                    extractDirectory);
+            if (mismatch == null) {
+                return true;
+            }
+            ConsoleLogger.logInfo("Couldn't fetch changes of package %d (%s), downloading whole package",
+                    latestPackage.getId(), mismatch);
+        } catch (PolygonException | ContestException e) {
+            ConsoleLogger.logError(e, "Couldn't fetch changes of package %d, downloading whole package",
+                    latestPackage.getId());
+        }
+
+        try {
+            FileUtils.deleteDirectory(extractDirectory.toFile());
+        } catch (IOException e) {
+            throw new FileSystemException(extractDirectory, e);
+        }
+        return false;
+    }
+
+    private static String applyDelta(final PolygonSession session, final PackageCache cache, final int problemId,
+                                     final Package basePackage, final Package latestPackage,
+                                     final PackageType type, final Path extractDirectory)
+            throws PolygonException, ContestException {
+        Problem problem = session.getProblem(problemId);
+        if (problem.isModified() || problem.getRevision() != latestPackage.getRevision()) {
+            return "problem was changed after the latest package";
+        }
+
+        Path archive = cache.acquireCachedPackage(problemId, basePackage.getId(), type);
+        if (archive == null) {
+            return "cached package is corrupted";
+        }
+
+        Set<String> baseEntries;
+        ProblemConfig config;
+        try {
+            baseEntries = ZipFileExtractor.listEntries(archive);
+            ZipFileExtractor.extractEntry(archive, ProblemFilesFilter.PROBLEM_XML, extractDirectory);
+            config = XMLUtils.parseProblemXML(extractDirectory.resolve(ProblemFilesFilter.PROBLEM_XML));
+            ZipFileExtractor.extract(archive, extractDirectory, new ProblemFilesFilter(config));
+        } catch (IOException e) {
+            throw new FileSystemException(archive, e);
+        } finally {
+            cache.release(problemId, basePackage.getId(), type);
+        }
+
+        String mismatch = checkSettings(session, problemId, config);
+        if (mismatch != null) {
+            return mismatch;
+        }
+
+        List<ProblemTest> tests = session.getProblemTests(problemId, TESTSET, false);
+        tests.sort(Comparator.comparingInt(ProblemTest::getIndex));
+        mismatch = checkTests(session, problemId, config, tests);
+        if (mismatch != null) {
+            return mismatch;
+        }
+
+        try {
+            Map<String, PolygonFile> files = new HashMap<>();
+            for (PolygonFile file : session.getProblemFiles(problemId)) {
+                String entry = switch (file.getType()) {
+                    case RESOURCE, SOURCE -> "files/" + file.getName();
+                    case SOLUTION -> "solutions/" + file.getName();
+                    case AUX -> null;
+                };
+                if (entry == null) {
+                    continue;
+                }
+                if (!baseEntries.contains(entry)) {
+                    return "file " + entry + " was added";
+                }
+                files.put(entry, file);
+            }
+
+            int fetchedFiles = 0;
+            int changedFiles = 0;
+            long fetchedBytes = 0;
+            for (String entry : ProblemFilesFilter.getRequiredFiles(config)) {
+                if (!entry.startsWith("files/") && !entry.startsWith("solutions/")
+                        || entry.equals(ProblemFilesFilter.CROSS_RUN)) {
+                    continue;
+                }
+
+                PolygonFile file = files.get(entry);
+                if (file == null) {
+                    return "file " + entry + " was removed";
+                }
+
+                Path path = extractDirectory.resolve(entry);
+                byte[] content = session.getProblemFileContent(problemId, file);
+                fetchedFiles++;
+                fetchedBytes += content.length;
+                if (Files.notExists(path) || !Arrays.equals(Files.readAllBytes(path), content)) {
+                    Files.createDirectories(path.getParent());
+                    Files.write(path, content);
+                    changedFiles++;
+                }
+            }
+
+            int manualTests = 0;
+            int changedTests = 0;
+            for (ProblemTest test : tests) {
+                if (!test.isManual()) {
+                    continue;
+                }
+
+                // inputs of problem.tests are JSON strings, which don't keep bytes of inputs which aren't UTF-8
+                manualTests++;
+                Path path = extractDirectory.resolve(String.format(config.getInputFilePattern(), test.getIndex()));
+                byte[] content = session.getProblemTestInput(problemId, TESTSET, test.getIndex());
+                if (Files.notExists(path) || !Arrays.equals(Files.readAllBytes(path), content)) {
+                    Files.createDirectories(path.getParent());
+                    Files.write(path, content);
+                    changedTests++;
+                }
+            }
+
+            ConsoleLogger.logInfo("Fetched changes of package %d: %d of %d files (%d bytes) and %d of %d manual "
+                    + "tests changed", latestPackage.getId(), changedFiles, fetchedFiles, fetchedBytes, changedTests,
+                    manualTests);
+        } catch (IOException e) {
+            throw new FileSystemException(extractDirectory, e);
+        }
+
+        return null;
+    }
+
+    private static String checkSettings(final PolygonSession session, final int problemId,
+                                        final ProblemConfig config) throws PolygonException {
+        ProblemInfo info = session.getProblemInfo(problemId);
+        if (info.getTimeLimit() != config.getTimeLimit()
+                || (long) info.getMemoryLimit() * 1024 * 1024 != config.getMemoryLimit()) {
+            return "limits were changed";
+        }
+        if (info.isInteractive() != (config.getInteractor() != null)) {
+            return "interactivity was changed";
+        }
+
+        if (!session.getProblemChecker(problemId).equals(getFileName(config.getChecker()))) {
+            return "checker was changed";
+        }
+        String validator = config.getValidators() == null || config.getValidators().isEmpty() ? ""
+                : getFileName(config.getValidators().get(0));
+        if (!session.getProblemValidator(problemId).equals(validator)) {
+            return "validator was changed";
+        }
+        if (info.isInteractive()
+                && !session.getProblemInteractor(problemId).equals(getFileName(config.getInteractor()))) {
+            return "interactor was changed";
+        }
+
+        if (!session.getProblemStatementNames(problemId).equals(config.getNames())) {
+            return "problem names were changed";
+        }
+        return null;
+    }
+
+    private static String checkTests(final PolygonSession session, final int problemId, final ProblemConfig config,
+                                     final List<ProblemTest> tests) throws PolygonException {
+        if (tests.size() != config.getTests().size()) {
+            return "number of tests was changed";
+        }
+
+        for (int i = 0; i < tests.size(); i++) {
+            ProblemTest actual = tests.get(i);
+            Test expected = config.getTests().get(i);
+
+            boolean manual = expected.getMethod() == GenerationMethod.MANUAL;
+            String group = actual.getGroup() == null || actual.getGroup().isEmpty() ? null : actual.getGroup();
+            int points = actual.getPoints() == null ? 0 : actual.getPoints().intValue();
+            if (actual.getIndex() != i + 1 || actual.isManual() != manual
+                    || !Objects.equals(group, expected.getGroup())
+                    || points != Math.max(expected.getPoints(), 0)
+                    || !manual && !getScriptCommand(actual.getScriptLine()).equals(expected.getCmd())) {
+                return "test " + (i + 1) + " was changed";
+            }
+        }
+
+        if (config.getGroups() == null) {
+            return null;
+        }
+
+        Map<String, TestGroup> groups = new HashMap<>();
+        session.getProblemTestGroups(problemId, TESTSET).forEach(group -> groups.put(group.getName(), group));
+        if (groups.size() != config.getGroups().size()) {
+            return "test groups were changed";
+        }
+        for (Group expected : config.getGroups()) {
+            TestGroup actual = groups.get(expected.getId());
+            List<String> dependencies = expected.getDependencies() == null ? List.of() : expected.getDependencies();
+            if (actual == null || !actual.getFeedbackPolicy().equals(expected.getFeedbackPolicy().name())
+                    || !actual.getPointsPolicy().equals(expected.getPointsPolicy().name())
+                    || !actual.getDependencies().equals(dependencies)) {
+                return "test group " + expected.getId() + " was changed";
+            }
+        }
+        return null;
+    }
+
+    private static String getScriptCommand(final String scriptLine) {
+        if (scriptLine == null) {
+            return "";
+        }
+        int redirect = scriptLine.lastIndexOf('>');
+        return (redirect == -1 ? scriptLine : scriptLine.substring(0, redirect)).trim();
+    }
+
+    private static String getFileName(final ProblemFile file) {
+        return file.getPath().getFileName().toString();
+    }
+}
@@ -0,0 +1,307 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest;
+
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.PackageCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageDownload;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Downloads packages of problems which will be prepared next while current problems are being built.
+ * Problems are prefetched in order they were scheduled, at most <code>depth</code> prefetched packages exist at
+ * once and their total size doesn't exceed disk budget (size of package is known only after download, so
+ * estimated size is used for packages which are not downloaded yet).
+ * <p>
+ * If packages cache is used, packages are prefetched into cache and stay pinned there until released,
+ * otherwise they are saved to prefetch directory
+ */
+public class PackagePrefetcher implements AutoCloseable {
+    private final PolygonSession session;
+    private final PackageCache cache;
+    private final Path directory;
+    private final int depth;
+    private final long budget;
+    private final PackageType packageType;
+    private final ExecutorService executor;
+
+    private final List<Task> queue = new ArrayList<>();
+    private final Map<Integer, Task> tasks = new HashMap<>();
+    private int next = 0;
+    private int active = 0;
+    private long reserved = 0;
+    private int prefetched = 0;
+    private long prefetchedBytes = 0;
+
+    /**
+     * Constructs prefetcher
+     *
+     * @param session     Polygon session
+     * @param cache       packages cache or <code>null</code> if cache is disabled
+     * @param directory   directory for prefetched archives (it is removed on close), used only without cache
+     * @param depth       maximal number of prefetched packages waiting to be built
+     * @param budget      maximal total size of prefetched packages in bytes
+     * @param packageType requested type of packages, standard packages are prefetched if it isn't available
+     */
+    public PackagePrefetcher(final PolygonSession session, final PackageCache cache, final Path directory,
+                             final int depth, final long budget, final PackageType packageType) {
+        this.session = session;
+        this.cache = cache;
+        this.directory = directory;
+        this.depth = depth;
+        this.budget = budget;
+        this.packageType = packageType;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(depth, runnable -> {
+            Thread thread = new Thread(runnable, "prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds problem to the end of prefetch queue
+     *
+     * @param problemId     problem ID
+     * @param packageList   future list of problem packages, the latest package is prefetched
+     * @param estimatedSize estimated package size in bytes, <code>0</code> if unknown
+     */
+    public synchronized void schedule(final int problemId, final CompletableFuture<List<Package>> packageList,
+                                      final long estimatedSize) {
+        Task task = new Task(problemId, packageList, estimatedSize);
+        queue.add(task);
+        tasks.put(problemId, task);
+        startTasks();
+    }
+
+    /**
+     * Waits for prefetched package. If prefetching of the package wasn't started yet, it won't be started
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @return {@link Path} to prefetched archive, <code>null</code> if package wasn't prefetched or was prefetched
+     * into packages cache
+     * @throws ContestException if waiting was interrupted
+     */
+    public Path awaitPackage(final int problemId, final int packageId, final PackageType type)
+            throws ContestException {
+        CompletableFuture<Prefetched> future;
+        synchronized (this) {
+            Task task = tasks.get(problemId);
+            if (task == null) {
+                return null;
+            }
+            if (task.future == null) {
+                task.skipped = true;
+                return null;
+            }
+            future = task.future;
+        }
+
+        try {
+            Prefetched result = future.get();
+            if (result.packageId != packageId || result.type != type) {
+                return null;
+            }
+            ConsoleLogger.logInfo("Using prefetched %s package %d for problem %d", type.getName(), packageId,
+                    problemId);
+            return cache == null ? result.path : null;
+        } catch (ExecutionException e) {
+            ConsoleLogger.logError(e.getCause(), "Couldn't prefetch package %d for problem %d", packageId,
+                    problemId);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while waiting for prefetched package", e);
+        }
+    }
+
+    /**
+     * Releases prefetched package of problem, so next packages may be prefetched. It may be called several times
+     *
+     * @param problemId problem ID
+     */
+    public void release(final int problemId) {
+        Task task;
+        synchronized (this) {
+            task = tasks.get(problemId);
+            if (task == null) {
+                return;
+            }
+            task.skipped = true;
+            if (task.future == null || task.released) {
+                startTasks();
+                return;
+            }
+            task.released = true;
+        }
+
+        // Package is released when download completes if it is still in progress
+        task.future.whenComplete((result, error) -> {
+            if (result != null) {
+                if (cache != null) {
+                    cache.release(problemId, result.packageId, result.type);
+                } else {
+                    try {
+                        Files.deleteIfExists(result.path);
+                    } catch (IOException e) {
+                        ConsoleLogger.logError(e, "Couldn't delete prefetched archive %s", result.path);
+                    }
+                }
+            }
+
+            synchronized (this) {
+                active--;
+                reserved -= task.size;
+                startTasks();
+            }
+        });
+    }
+
+    /**
+     * Prints prefetch statistics to log
+     */
+    public synchronized void logStatistics() {
+        ConsoleLogger.logInfo("Prefetcher: %d packages, %d bytes prefetched", prefetched, prefetchedBytes);
+    }
+
+    /**
+     * Stops prefetching, releases packages which weren't released and removes prefetch directory
+     *
+     * @throws ContestException if prefetch directory couldn't be removed
+     */
+    @Override
+    public void close() throws ContestException {
+        List<Task> started = new ArrayList<>();
+        synchronized (this) {
+            next = queue.size();
+            for (Task task : queue) {
+                if (task.future != null) {
+                    started.add(task);
+                }
+            }
+        }
+
+        for (Task task : started) {
+            release(task.problemId);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if (cache == null && Files.exists(directory)) {
+            try {
+                FileUtils.deleteDirectory(directory.toFile());
+            } catch (IOException e) {
+                throw new FileSystemException(directory, e);
+            }
+        }
+    }
+
+    private synchronized void startTasks() {
+        while (active < depth && next < queue.size()) {
+            Task task = queue.get(next);
+            if (task.skipped) {
+                next++;
+                continue;
+            }
+            if (task.estimatedSize > budget) {
+                ConsoleLogger.logInfo("Package of problem %d is larger than prefetch budget, it won't be prefetched",
+                        task.problemId);
+                next++;
+                continue;
+            }
+            if (reserved + task.estimatedSize > budget) {
+                break;
+            }
+
+            next++;
+            active++;
+            task.size = task.estimatedSize;
+            reserved += task.size;
+            task.future = task.packageList.thenApplyAsync(packages -> prefetch(task, packages), executor);
+        }
+    }
+
+    private Prefetched prefetch(final Task task, final List<Package> packages) {
+        Package latestPackage = packages.stream().max(Comparator.comparingInt(Package::getId))
+                .orElseThrow(() -> new CompletionException(
+                        new ContestException("problem " + task.problemId + " has no packages")));
+        int packageId = latestPackage.getId();
+        PackageType type = packageType.availableFor(latestPackage);
+
+        Prefetched result;
+        try {
+            if (cache != null) {
+                Path archive = cache.acquirePackage(session, task.problemId, packageId, type);
+                result = new Prefetched(packageId, type, archive, Files.size(archive));
+            } else {
+                Files.createDirectories(directory);
+                ConsoleLogger.logInfo("Prefetching %s package %d for problem %d", type.getName(), packageId,
+                        task.problemId);
+                PackageDownload download = session.downloadProblemPackage(task.problemId, packageId, type,
+                        directory);
+                result = new Prefetched(packageId, type, download.getPath(), download.getSize());
+            }
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+
+        synchronized (this) {
+            reserved += result.size - task.size;
+            task.size = result.size;
+            prefetched++;
+            prefetchedBytes += result.size;
+        }
+        return result;
+    }
+
+    private static class Task {
+        private final int problemId;
+        private final CompletableFuture<List<Package>> packageList;
+        private final long estimatedSize;
+
+        private CompletableFuture<Prefetched> future = null;
+        private long size = 0;
+        private boolean skipped = false;
+        private boolean released = false;
+
+        private Task(final int problemId, final CompletableFuture<List<Package>> packageList,
+                     final long estimatedSize) {
+            this.problemId = problemId;
+            this.packageList = packageList;
+            this.estimatedSize = estimatedSize;
+        }
+    }
+
+    private static class Prefetched {
+        private final int packageId;
+        private final PackageType type;
+        private final Path path;
+        private final long size;
+
+        private Prefetched(final int packageId, final PackageType type, final Path path, final long size) {
+            this.packageId = packageId;
+            this.type = type;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.cache;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.CPPHeaderCompiler;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.Compiler;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Persistent cache of compiled problem sources shared by problems and runs. Entry is keyed by SHA-256 hash of
+ * compiler toolchain (command line and version), source name and content and contents of resources (for example
+ * <code>testlib.h</code>). Source is compiled in isolated directory together with resources, so all files created
+ * by compiler (binaries, classes and wrapper scripts) are stored in entry and copied next to source on hit.
+ * Identical sources are compiled once even if they are requested concurrently
+ * <p>
+ * Precompiled headers passed among resources are linked to isolated directory instead of copying and are not
+ * hashed, because they are built from headers which are hashed
+ */
+public class CompilationCache {
+    private static final String WORK_DIRECTORY = "work";
+    private static final String OUTPUT_DIRECTORY = "output";
+
+    private final DiskLruCache cache;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs compilation cache in given directory
+     *
+     * @param directory cache directory
+     * @param maxSize   maximal total size of cached files in bytes
+     * @throws ContestException if cache directory couldn't be prepared
+     */
+    public CompilationCache(final Path directory, final long maxSize) throws ContestException {
+        this.cache = new DiskLruCache(directory, maxSize);
+    }
+
+    /**
+     * Restores compiled files of source from cache or compiles source and stores them
+     *
+     * @param compiler   compiler of source
+     * @param sourcePath source path, compiled files are placed to its directory
+     * @param resources  resources which may be used by source
+     * @throws ContestException if source couldn't be compiled or cache couldn't be used
+     */
+    public void compile(final Compiler compiler, final Path sourcePath, final List<Path> resources)
+            throws ContestException {
+        String key = getKey(compiler, sourcePath, resources);
+        synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+            Path entry = cache.acquire(key);
+            if (entry != null) {
+                try {
+                    ConsoleLogger.logInfo("Using cached compilation of %s", sourcePath.getFileName());
+                    copyFiles(entry.resolve(OUTPUT_DIRECTORY), sourcePath.getParent());
+                    return;
+                } finally {
+                    cache.release(key);
+                }
+            }
+
+            Path staging = cache.createStagingDirectory();
+            try {
+                Path work = Files.createDirectory(staging.resolve(WORK_DIRECTORY));
+                Path output = Files.createDirectory(staging.resolve(OUTPUT_DIRECTORY));
+                Set<Path> inputs = new HashSet<>();
+                for (Path input : getInputs(sourcePath, resources)) {
+                    Path copy = work.resolve(input.getFileName().toString());
+                    inputs.add(CPPHeaderCompiler.isPrecompiledHeader(input)
+                            ? Files.createSymbolicLink(copy, input.toAbsolutePath())
+                            : Files.copy(input, copy));
+                }
+
+                compiler.compile(work.resolve(sourcePath.getFileName().toString()));
+
+                try (Stream<Path> files = Files.list(work)) {
+                    for (Path file : files.filter(file -> !inputs.contains(file)).collect(Collectors.toList())) {
+                        Files.move(file, output.resolve(file.getFileName().toString()));
+                    }
+                }
+                FileUtils.deleteDirectory(work.toFile());
+                copyFiles(output, sourcePath.getParent());
+            } catch (IOException e) {
+                cache.discard(staging);
+                throw new FileSystemException(staging, e);
+            } catch (ContestException | RuntimeException e) {
+                cache.discard(staging);
+                throw e;
+            }
+
+            cache.commit(key, staging);
+            cache.release(key);
+        }
+    }
+
+    /**
+     * Removes all cached compilations
+     *
+     * @throws ContestException if cache couldn't be cleared
+     */
+    public void purge() throws ContestException {
+        ConsoleLogger.logInfo("Purging compilation cache");
+        cache.purge();
+    }
+
+    /**
+     * Prints cache usage statistics to log
+     *
+     * @throws ContestException if cache directory couldn't be read
+     */
+    public void logStatistics() throws ContestException {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        ConsoleLogger.logInfo("Compilation cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d bytes "
+                        + "stored", hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses),
+                cache.getEvictions(), cache.getSize());
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    private static List<Path> getInputs(final Path sourcePath, final List<Path> resources) {
+        List<Path> inputs = new ArrayList<>();
+        inputs.add(sourcePath);
+        resources.stream()
+                .filter(resource -> !resource.getFileName().equals(sourcePath.getFileName()))
+                .sorted(Comparator.comparing(resource -> resource.getFileName().toString()))
+                .forEach(inputs::add);
+        return inputs;
+    }
+
+    private static String getKey(final Compiler compiler, final Path sourcePath, final List<Path> resources)
+            throws ContestException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(compiler.getToolchain().getBytes(StandardCharsets.UTF_8));
+        for (Path input : getInputs(sourcePath, resources)) {
+            if (CPPHeaderCompiler.isPrecompiledHeader(input)) {
+                continue;
+            }
+            digest.update((byte) 0);
+            digest.update(input.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try (InputStream stream = Files.newInputStream(input)) {
+                digest.update(DigestUtils.sha256(stream));
+            } catch (IOException e) {
+                throw new FileSystemException(input, e);
+            }
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private static void copyFiles(final Path from, final Path to) throws ContestException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.copy(file, to.resolve(file.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        } catch (IOException e) {
+            throw new FileSystemException(from, to, e);
+        }
+    }
+}
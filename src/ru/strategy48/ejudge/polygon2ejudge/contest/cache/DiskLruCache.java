@@ -0,0 +1,267 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.cache;
+
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * On-disk cache storing every entry as a directory named by its key. Total cache size is limited, least recently
+ * used entries are evicted first (last usage is tracked by directory modification time). Entries that are in use
+ * are never evicted until they are released.
+ */
+public class DiskLruCache {
+    private static final String STAGING_PREFIX = ".staging-";
+
+    private final Path root;
+    private final long maxSize;
+
+    private final Map<String, Integer> inUse = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Constructs cache in given directory. Directory is created if it doesn't exist, unfinished entries
+     * left by previous runs are removed
+     *
+     * @param root    cache directory
+     * @param maxSize maximal total size of entries in bytes
+     * @throws ContestException if cache directory couldn't be prepared
+     */
+    public DiskLruCache(final Path root, final long maxSize) throws ContestException {
+        this.root = root;
+        this.maxSize = maxSize;
+
+        try {
+            Files.createDirectories(root);
+            for (Path staging : listDirectory(path -> path.getFileName().toString().startsWith(STAGING_PREFIX))) {
+                FileUtils.deleteDirectory(staging.toFile());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new FileSystemException(root, e);
+        }
+    }
+
+    /**
+     * Finds entry by key and marks it as used. Every found entry must be released with {@link #release(String)}
+     *
+     * @param key entry key
+     * @return {@link Path} to entry directory or <code>null</code> if there is no such entry
+     */
+    public synchronized Path acquire(final String key) {
+        Path entry = root.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            misses++;
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            ConsoleLogger.logError(e, "Couldn't update last usage time of cache entry %s", key);
+        }
+
+        hits++;
+        inUse.merge(key, 1, Integer::sum);
+        return entry;
+    }
+
+    /**
+     * Releases entry found by {@link #acquire(String)} or stored by {@link #commit(String, Path)}
+     *
+     * @param key entry key
+     */
+    public synchronized void release(final String key) {
+        inUse.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Creates empty staging directory which should be filled and then passed to {@link #commit(String, Path)}
+     *
+     * @return {@link Path} to created directory
+     * @throws ContestException if directory couldn't be created
+     */
+    public Path createStagingDirectory() throws ContestException {
+        try {
+            return Files.createTempDirectory(root, STAGING_PREFIX);
+        } catch (IOException e) {
+            throw new FileSystemException(root, e);
+        }
+    }
+
+    /**
+     * Atomically turns filled staging directory into cache entry replacing old entry with the same key, and evicts
+     * least recently used entries if cache became too large. Stored entry is marked as used, so it must be released
+     * with {@link #release(String)}
+     *
+     * @param key     entry key
+     * @param staging staging directory created by {@link #createStagingDirectory()}
+     * @return {@link Path} to entry directory
+     * @throws ContestException if entry couldn't be stored
+     */
+    public synchronized Path commit(final String key, final Path staging) throws ContestException {
+        Path entry = root.resolve(key);
+
+        try {
+            if (Files.exists(entry)) {
+                FileUtils.deleteDirectory(entry.toFile());
+            }
+            Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            throw new FileSystemException(staging, entry, e);
+        }
+
+        inUse.merge(key, 1, Integer::sum);
+        evict();
+        return entry;
+    }
+
+    /**
+     * Removes staging directory that won't be committed
+     *
+     * @param staging staging directory created by {@link #createStagingDirectory()}
+     */
+    public void discard(final Path staging) {
+        try {
+            FileUtils.deleteDirectory(staging.toFile());
+        } catch (IOException e) {
+            ConsoleLogger.logError(e, "Couldn't remove cache staging directory %s", staging);
+        }
+    }
+
+    /**
+     * Removes entry with given key
+     *
+     * @param key entry key
+     * @throws ContestException if entry couldn't be removed
+     */
+    public synchronized void invalidate(final String key) throws ContestException {
+        Path entry = root.resolve(key);
+        try {
+            FileUtils.deleteDirectory(entry.toFile());
+        } catch (IOException e) {
+            throw new FileSystemException(entry, e);
+        }
+    }
+
+    /**
+     * Removes all entries that are not in use
+     *
+     * @throws ContestException if entries couldn't be removed
+     */
+    public synchronized void purge() throws ContestException {
+        for (Path entry : listEntries()) {
+            if (!inUse.containsKey(entry.getFileName().toString())) {
+                invalidate(entry.getFileName().toString());
+            }
+        }
+    }
+
+    /**
+     * Gets total size of entries
+     *
+     * @return size in bytes
+     * @throws ContestException if cache directory couldn't be read
+     */
+    public synchronized long getSize() throws ContestException {
+        long size = 0;
+        for (Path entry : listEntries()) {
+            size += FileUtils.sizeOfDirectory(entry.toFile());
+        }
+        return size;
+    }
+
+    /**
+     * Gets keys of all entries
+     *
+     * @return {@link List} of keys
+     * @throws ContestException if cache directory couldn't be read
+     */
+    public synchronized List<String> getKeys() throws ContestException {
+        return listEntries().stream().map(entry -> entry.getFileName().toString()).collect(Collectors.toList());
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Counts lookup which found an entry that turned out to be unusable as miss
+     */
+    public synchronized void countAsMiss() {
+        hits--;
+        misses++;
+    }
+
+    private void evict() throws ContestException {
+        Map<Path, Long> sizes = new HashMap<>();
+        long size = 0;
+        for (Path entry : listEntries()) {
+            long entrySize = FileUtils.sizeOfDirectory(entry.toFile());
+            sizes.put(entry, entrySize);
+            size += entrySize;
+        }
+
+        List<Path> entries = sizes.keySet().stream()
+                .sorted(Comparator.comparingLong(DiskLruCache::lastModified))
+                .collect(Collectors.toList());
+        for (Path entry : entries) {
+            if (size <= maxSize) {
+                break;
+            }
+            String key = entry.getFileName().toString();
+            if (inUse.containsKey(key)) {
+                continue;
+            }
+
+            ConsoleLogger.logInfo("Evicting cache entry %s", key);
+            invalidate(key);
+            size -= sizes.get(entry);
+            evictions++;
+        }
+    }
+
+    private List<Path> listEntries() throws ContestException {
+        try {
+            return listDirectory(path -> Files.isDirectory(path)
+                    && !path.getFileName().toString().startsWith(STAGING_PREFIX));
+        } catch (IOException | UncheckedIOException e) {
+            throw new FileSystemException(root, e);
+        }
+    }
+
+    private List<Path> listDirectory(final Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(filter).collect(Collectors.toList());
+        }
+    }
+
+    private static long lastModified(final Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.cache;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.PolygonSession;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.PolygonException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageDownload;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Persistent cache of downloaded problem packages keyed by problem ID, package ID and package type. Every cached
+ * archive is stored together with its SHA-256 checksum which is verified before archive is used
+ */
+public class PackageCache {
+    private static final String ARCHIVE_NAME = "package.zip";
+    private static final String CHECKSUM_NAME = "package.sha256";
+
+    private final DiskLruCache cache;
+
+    /**
+     * Constructs package cache in given directory
+     *
+     * @param directory cache directory
+     * @param maxSize   maximal total size of cached packages in bytes
+     * @throws ContestException if cache directory couldn't be prepared
+     */
+    public PackageCache(final Path directory, final long maxSize) throws ContestException {
+        this.cache = new DiskLruCache(directory, maxSize);
+    }
+
+    /**
+     * Gets package archive from cache or downloads it to cache if it is absent or corrupted. Returned archive
+     * must be released with {@link #release(int, int, PackageType)} after usage
+     *
+     * @param session   Polygon session used for downloading
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @return {@link Path} to cached archive
+     * @throws PolygonException if error happened while downloading package
+     * @throws ContestException if error happened while working with cache directory
+     */
+    public Path acquirePackage(final PolygonSession session, final int problemId, final int packageId,
+                               final PackageType type) throws PolygonException, ContestException {
+        String key = getKey(problemId, packageId, type);
+
+        Path entry = cache.acquire(key);
+        if (entry != null) {
+            if (isValid(entry)) {
+                ConsoleLogger.logInfo("Using cached %s package %d for problem %d", type.getName(), packageId,
+                        problemId);
+                return entry.resolve(ARCHIVE_NAME);
+            }
+
+            ConsoleLogger.logInfo("Cached package %d for problem %d is corrupted, downloading it again",
+                    packageId, problemId);
+            cache.release(key);
+            cache.countAsMiss();
+            cache.invalidate(key);
+        }
+
+        Path staging = cache.createStagingDirectory();
+        try {
+            ConsoleLogger.logInfo("Downloading %s package %d for problem %d to cache", type.getName(), packageId,
+                    problemId);
+            PackageDownload download = session.downloadProblemPackage(problemId, packageId, type, staging);
+            ConsoleLogger.logInfo("Downloaded package %d: %d bytes in %.2f s (%.2f MB/s), SHA-256 %s", packageId,
+                    download.getSize(), download.getElapsedNanos() / 1e9, download.getThroughput(),
+                    download.getSha256());
+
+            Files.move(download.getPath(), staging.resolve(ARCHIVE_NAME));
+            Files.writeString(staging.resolve(CHECKSUM_NAME), download.getSha256());
+        } catch (IOException e) {
+            cache.discard(staging);
+            throw new FileSystemException(staging, e);
+        } catch (PolygonException | RuntimeException e) {
+            cache.discard(staging);
+            throw e;
+        }
+
+        return cache.commit(key, staging).resolve(ARCHIVE_NAME);
+    }
+
+    /**
+     * Gets cached archive of package without downloading it. Returned archive must be released with
+     * {@link #release(int, int, PackageType)} after usage
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @return {@link Path} to cached archive or <code>null</code> if package is not cached or corrupted
+     * @throws ContestException if error happened while working with cache directory
+     */
+    public Path acquireCachedPackage(final int problemId, final int packageId, final PackageType type)
+            throws ContestException {
+        String key = getKey(problemId, packageId, type);
+
+        Path entry = cache.acquire(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!isValid(entry)) {
+            cache.release(key);
+            cache.countAsMiss();
+            cache.invalidate(key);
+            return null;
+        }
+        return entry.resolve(ARCHIVE_NAME);
+    }
+
+    /**
+     * Finds the latest cached package of problem of given type which is older than given package
+     *
+     * @param problemId problem ID
+     * @param packageId package ID, only older packages are considered
+     * @param type      package type
+     * @return ID of cached package or <code>-1</code> if there is no such package
+     * @throws ContestException if cache directory couldn't be read
+     */
+    public int findOlderPackage(final int problemId, final int packageId, final PackageType type)
+            throws ContestException {
+        String prefix = problemId + "-";
+        int result = -1;
+        for (String key : cache.getKeys()) {
+            if (!key.startsWith(prefix)) {
+                continue;
+            }
+            try {
+                int cachedPackageId = Integer.parseInt(key.substring(prefix.length()).split("-", 2)[0]);
+                if (cachedPackageId < packageId && key.equals(getKey(problemId, cachedPackageId, type))) {
+                    result = Math.max(result, cachedPackageId);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases archive returned by {@link #acquirePackage(PolygonSession, int, int, PackageType)}
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     */
+    public void release(final int problemId, final int packageId, final PackageType type) {
+        cache.release(getKey(problemId, packageId, type));
+    }
+
+    /**
+     * Removes all cached packages
+     *
+     * @throws ContestException if cache couldn't be cleared
+     */
+    public void purge() throws ContestException {
+        ConsoleLogger.logInfo("Purging package cache");
+        cache.purge();
+    }
+
+    /**
+     * Prints cache usage statistics to log
+     *
+     * @throws ContestException if cache directory couldn't be read
+     */
+    public void logStatistics() throws ContestException {
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        ConsoleLogger.logInfo("Package cache: %d hits, %d misses (%.1f%% hit rate), %d evictions, %d bytes stored",
+                hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses), cache.getEvictions(),
+                cache.getSize());
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    private boolean isValid(final Path entry) {
+        Path archive = entry.resolve(ARCHIVE_NAME);
+        Path checksum = entry.resolve(CHECKSUM_NAME);
+        if (Files.notExists(archive) || Files.notExists(checksum)) {
+            return false;
+        }
+
+        try (InputStream input = Files.newInputStream(archive)) {
+            String expected = Files.readString(checksum, StandardCharsets.UTF_8).trim();
+            return expected.equalsIgnoreCase(DigestUtils.sha256Hex(input));
+        } catch (IOException e) {
+            ConsoleLogger.logError(e, "Couldn't verify cached package %s", archive);
+            return false;
+        }
+    }
+
+    private static String getKey(final int problemId, final int packageId, final PackageType type) {
+        // Keys of standard packages have no suffix, so entries cached by previous versions are still used
+        return problemId + "-" + packageId + (type == PackageType.STANDARD ? "" : "-" + type.getName());
+    }
+}
@@ -5,13 +5,29 @@ import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ScriptException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.List;
 
 public abstract class AbstractCompiler {
     private final String compilationScriptFormat;
+    private final String versionScript;
+    private String version = null;
 
     public AbstractCompiler(final String compilationScriptFormat) {
+        this(compilationScriptFormat, null);
+    }
+
+    /**
+     * Constructs compiler
+     *
+     * @param compilationScriptFormat format of compilation command line, <code>null</code> if sources are not
+     *                                compiled
+     * @param versionScript           command line printing compiler version, <code>null</code> if there is none
+     */
+    public AbstractCompiler(final String compilationScriptFormat, final String versionScript) {
         this.compilationScriptFormat = compilationScriptFormat;
+        this.versionScript = versionScript;
     }
 
     public final void compile(Path sourcePath, Object... args) throws ContestException {
@@ -34,4 +50,45 @@ public abstract class AbstractCompiler {
             throw new ScriptException(compilationScript, e);
         }
     }
+
+    /**
+     * Gets description of toolchain: compilation command line format, class of compiler and output of version
+     * command (it is requested once)
+     *
+     * @return toolchain description
+     */
+    public synchronized String getToolchain() {
+        return getClass().getName() + "\n" + compilationScriptFormat + "\n" + getVersion();
+    }
+
+    /**
+     * Gets output of version command, it is requested once
+     *
+     * @return compiler version or empty string if it is unknown
+     */
+    protected synchronized String getVersion() {
+        if (version == null) {
+            version = versionScript == null ? "" : readVersion();
+        }
+        return version;
+    }
+
+    private String readVersion() {
+        ProcessBuilder processBuilder = new ProcessBuilder(List.of("bash", "-c", versionScript));
+        processBuilder.redirectErrorStream(true);
+        try {
+            Process process = processBuilder.start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (process.waitFor() != 0) {
+                ConsoleLogger.logInfo("Couldn't get compiler version via \"%s\"", versionScript);
+            }
+            return output.trim();
+        } catch (IOException e) {
+            ConsoleLogger.logError(e, "Couldn't get compiler version via \"%s\"", versionScript);
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
 }
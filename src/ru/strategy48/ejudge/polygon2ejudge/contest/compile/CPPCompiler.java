@@ -4,12 +4,17 @@ import ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
 
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 public class CPPCompiler extends AbstractCompiler implements Compiler {
-    private static CPPCompiler instance;
+    private static final Map<CompilerProfile, CPPCompiler> instances = new HashMap<>();
 
-    private CPPCompiler() {
-        super("g++ -o %s %s -std=c++17 -O2 -DEJUDGE");
+    private final CompilerProfile profile;
+
+    private CPPCompiler(final CompilerProfile profile) {
+        super("g++ -o %s %s " + profile.getBuildFlags(), "g++ --version");
+        this.profile = profile;
     }
 
     @Override
@@ -17,10 +22,21 @@ public class CPPCompiler extends AbstractCompiler implements Compiler {
         super.compile(sourcePath, FileUtils.removeExtension(sourcePath), sourcePath);
     }
 
+    public CompilerProfile getProfile() {
+        return profile;
+    }
+
     public static CPPCompiler getInstance() {
-        if (instance == null) {
-            instance = new CPPCompiler();
-        }
-        return instance;
+        return getInstance(CompilerProfile.DEFAULT);
+    }
+
+    /**
+     * Gets compiler using given profile
+     *
+     * @param profile compiler profile
+     * @return {@link CPPCompiler} building executables with options of profile
+     */
+    public static synchronized CPPCompiler getInstance(final CompilerProfile profile) {
+        return instances.computeIfAbsent(profile, CPPCompiler::new);
     }
 }
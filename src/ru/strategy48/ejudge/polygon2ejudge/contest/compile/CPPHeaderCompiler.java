@@ -0,0 +1,61 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Builds precompiled C++ headers with compilation options of {@link CPPCompiler} profile. Precompiled header is
+ * placed next to header, so <code>g++</code> uses it instead of parsing header if it is the first file included by
+ * source and was built with compatible options, otherwise it is silently ignored and header is compiled as usual
+ */
+public class CPPHeaderCompiler extends AbstractCompiler implements Compiler {
+    /**
+     * Extension of precompiled headers
+     */
+    public static final String EXTENSION = ".gch";
+
+    private static final Map<CompilerProfile, CPPHeaderCompiler> instances = new HashMap<>();
+
+    private CPPHeaderCompiler(final CompilerProfile profile) {
+        super("g++ -x c++-header -o %s %s " + profile.getCompilationFlags(), "g++ --version");
+    }
+
+    @Override
+    public void compile(Path sourcePath) throws ContestException {
+        super.compile(sourcePath, getPrecompiledHeader(sourcePath), sourcePath);
+    }
+
+    /**
+     * Gets path of precompiled header built for given header
+     *
+     * @param headerPath header path
+     * @return {@link Path} to precompiled header
+     */
+    public static Path getPrecompiledHeader(final Path headerPath) {
+        return headerPath.resolveSibling(headerPath.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Checks if file is precompiled header
+     *
+     * @param path file path
+     * @return <code>true</code> if file has extension of precompiled headers
+     */
+    public static boolean isPrecompiledHeader(final Path path) {
+        return path.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Gets compiler of headers compatible with sources compiled using given profile
+     *
+     * @param profile compiler profile
+     * @return {@link CPPHeaderCompiler} using compilation options of profile
+     */
+    public static synchronized CPPHeaderCompiler getInstance(final CompilerProfile profile) {
+        return instances.computeIfAbsent(profile, CPPHeaderCompiler::new);
+    }
+}
@@ -0,0 +1,174 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import org.apache.commons.io.FileUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Builds Class Data Sharing (AppCDS) archive of compiled Java executable, so JVM started by its wrapper script maps
+ * already parsed and verified classes instead of loading them. JVM archives only classes loaded from jar files, so
+ * main class and classes of the same directory it references are packed to jar first. Archive is dumped by training
+ * run of executable without arguments and with empty input, classes loaded before it exits are archived
+ * <p>
+ * Archive is valid only for the same <code>java</code> and the same absolute path to jar, otherwise JVM ignores it
+ */
+public class ClassDataArchive {
+    private static final long TRAINING_TIMEOUT_SECONDS = 10;
+    private static final Pattern DESCRIPTOR_CLASS_PATTERN = Pattern.compile("L([^;<>/\\[(]+)[;<]");
+
+    /**
+     * Gets path to jar with classes of executable
+     *
+     * @param directory directory with compiled classes
+     * @param className name of main class
+     * @return {@link Path} to jar
+     */
+    public static Path getJar(final Path directory, final String className) {
+        return directory.resolve(className + ".jar");
+    }
+
+    /**
+     * Gets path to archive of executable
+     *
+     * @param directory directory with compiled classes
+     * @param className name of main class
+     * @return {@link Path} to archive
+     */
+    public static Path getArchive(final Path directory, final String className) {
+        return directory.resolve(className + ".jsa");
+    }
+
+    /**
+     * Packs classes of executable to jar and dumps archive by training run of <code>java</code>
+     *
+     * @param directory directory with compiled classes
+     * @param className name of main class
+     * @param options   JVM options executable is run with
+     * @return <code>true</code> if archive was created, <code>false</code> if JVM didn't create it (for example
+     * if it doesn't support dynamic archives) or training run didn't finish in time
+     * @throws ContestException if classes couldn't be read, files couldn't be written or training run was
+     *                          interrupted
+     */
+    public static boolean create(final Path directory, final String className, final List<String> options)
+            throws ContestException {
+        Path absoluteDirectory = directory.toAbsolutePath();
+        Path jar = getJar(absoluteDirectory, className);
+        Path archive = getArchive(absoluteDirectory, className);
+        FileUtils.deleteQuietly(archive.toFile());
+        writeJar(absoluteDirectory, findClasses(absoluteDirectory, className), jar);
+
+        Path work;
+        try {
+            work = Files.createTempDirectory("polygon2ejudge-cds");
+        } catch (IOException e) {
+            throw new ContestException("couldn't create directory for training run of " + className, e);
+        }
+        try {
+            // training run is made in temporary directory, so files written by executable are removed
+            Path temporaryArchive = work.resolve(archive.getFileName().toString());
+            List<String> command = new ArrayList<>();
+            command.add("java");
+            command.addAll(options);
+            command.addAll(List.of("-XX:ArchiveClassesAtExit=" + temporaryArchive, "-cp", jar.toString(),
+                    className));
+            ConsoleLogger.logInfo("Training run of %s: %s", className, String.join(" ", command));
+
+            Process process = new ProcessBuilder(command)
+                    .directory(work.toFile())
+                    .redirectInput(Files.createFile(work.resolve("input")).toFile())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(TRAINING_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+                ConsoleLogger.logInfo("Training run of %s didn't finish in %d seconds, archive is not created",
+                        className, TRAINING_TIMEOUT_SECONDS);
+                return false;
+            }
+            if (!Files.exists(temporaryArchive)) {
+                ConsoleLogger.logInfo("JVM didn't create archive of %s (exit code %d)", className,
+                        process.exitValue());
+                return false;
+            }
+            Files.move(temporaryArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            throw new FileSystemException(archive, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while creating archive of " + className, e);
+        } finally {
+            FileUtils.deleteQuietly(work.toFile());
+        }
+    }
+
+    private static List<String> findClasses(final Path directory, final String className) throws ContestException {
+        Set<String> classNames = new LinkedHashSet<>(List.of(className));
+        Deque<String> queue = new ArrayDeque<>(classNames);
+        while (!queue.isEmpty()) {
+            Path classPath = directory.resolve(queue.poll() + ".class");
+            for (String reference : getConstantStrings(classPath)) {
+                List<String> candidates = new ArrayList<>();
+                candidates.add(reference);
+                Matcher matcher = DESCRIPTOR_CLASS_PATTERN.matcher(reference);
+                while (matcher.find()) {
+                    candidates.add(matcher.group(1));
+                }
+                for (String candidate : candidates) {
+                    // classes are compiled to default package, so nested paths are not looked at
+                    if (candidate.isEmpty() || candidate.contains("/") || classNames.contains(candidate)
+                            || !Files.isRegularFile(directory.resolve(candidate + ".class"))) {
+                        continue;
+                    }
+                    classNames.add(candidate);
+                    queue.add(candidate);
+                }
+            }
+        }
+        return new ArrayList<>(classNames);
+    }
+
+    private static List<String> getConstantStrings(final Path classPath) throws ContestException {
+        List<String> strings = new ArrayList<>();
+        try {
+            ConstantPool constantPool = new ConstantPool(Files.readAllBytes(classPath));
+            for (int i = 1; i < constantPool.getCount(); i++) {
+                if (constantPool.getTag(i) == ConstantPool.UTF8) {
+                    strings.add(constantPool.getUtf8(i));
+                }
+            }
+        } catch (IOException e) {
+            throw new FileSystemException(classPath, e);
+        }
+        return strings;
+    }
+
+    private static void writeJar(final Path directory, final List<String> classNames, final Path jar)
+            throws ContestException {
+        ConsoleLogger.logInfo("Packing %s to %s", classNames, jar.getFileName());
+        try (OutputStream output = Files.newOutputStream(jar);
+             JarOutputStream jarOutput = new JarOutputStream(output)) {
+            for (String name : classNames) {
+                jarOutput.putNextEntry(new JarEntry(name + ".class"));
+                jarOutput.write(Files.readAllBytes(directory.resolve(name + ".class")));
+                jarOutput.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new FileSystemException(jar, e);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.cache.CompilationCache;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.CompilationException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.UnsupportedLanguageException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils.copyFile;
+import static ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils.deleteFile;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Set of problem sources compiled in parallel. Every source is copied to target directory and compiled there,
+ * source referenced several times (for example checker which is listed among executables too) is compiled once
+ * with the most important of its roles. All sources are copied before compilation starts, failures of all sources
+ * are reported together. If compilation cache is used, sources compiled earlier are restored from it
+ * <p>
+ * Without compilation cache all Java sources are compiled in one task, if it fails they are compiled separately.
+ * Heavy headers among resources (such as <code>testlib.h</code>) included by several C++ sources are precompiled
+ * before other sources are compiled. If header couldn't be precompiled, sources are compiled without it
+ * <p>
+ * If Class Data Sharing is enabled, archives of Java executables are created after all sources are compiled.
+ * Archives are not cached because they are valid only at path they were created for
+ */
+public class CompilationPlan {
+    /**
+     * Describes roles of problem sources, later roles are more important
+     */
+    public enum Role {
+        EXECUTABLE("generator"), VALIDATOR("validator"), INTERACTOR("interactor"), CHECKER("checker"),
+        MAIN_SOLUTION("solution");
+
+        private final String name;
+
+        Role(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Gets name of role used in compiler profiles and manifest
+         *
+         * @return role name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final long PRECOMPILED_HEADER_MIN_SIZE = 64 * 1024;
+    private static final int PRECOMPILED_HEADER_MIN_USES = 2;
+    private static final Set<String> HEADER_EXTENSIONS = Set.of(".h", ".hh", ".hpp", ".hxx");
+
+    private final Path directory;
+    private final CompilationCache cache;
+    private final boolean precompileHeaders;
+    private final CompilerProfiles profiles;
+    private final boolean classDataSharing;
+    private final Map<String, Source> sources = new LinkedHashMap<>();
+    private final List<Path> resources = new ArrayList<>();
+    private final List<Path> precompiledHeaders = new ArrayList<>();
+    private final Map<String, String> toolchains = new TreeMap<>();
+    private final Set<String> javaMainClasses = new TreeSet<>();
+
+    /**
+     * Constructs empty plan
+     *
+     * @param directory directory sources are copied to and compiled in
+     */
+    public CompilationPlan(final Path directory) {
+        this(directory, null);
+    }
+
+    /**
+     * Constructs empty plan using compilation cache
+     *
+     * @param directory directory sources are copied to and compiled in
+     * @param cache     compilation cache or <code>null</code> if cache is disabled
+     */
+    public CompilationPlan(final Path directory, final CompilationCache cache) {
+        this(directory, cache, true, new CompilerProfiles(), false);
+    }
+
+    /**
+     * Constructs empty plan using compilation cache and C++ compiler profiles
+     *
+     * @param directory         directory sources are copied to and compiled in
+     * @param cache             compilation cache or <code>null</code> if cache is disabled
+     * @param precompileHeaders <code>true</code> if heavy headers shared by C++ sources are precompiled
+     * @param profiles          C++ compiler profiles and Python interpreters of roles
+     * @param classDataSharing  <code>true</code> if Class Data Sharing archives of Java executables are created
+     */
+    public CompilationPlan(final Path directory, final CompilationCache cache, final boolean precompileHeaders,
+                           final CompilerProfiles profiles, final boolean classDataSharing) {
+        this.directory = directory;
+        this.cache = cache;
+        this.precompileHeaders = precompileHeaders;
+        this.profiles = profiles;
+        this.classDataSharing = classDataSharing;
+    }
+
+    /**
+     * Adds resource which may be used by sources (for example <code>testlib.h</code>), resources must be already
+     * placed to target directory
+     *
+     * @param path path to resource in target directory
+     */
+    public void addResource(final Path path) {
+        resources.add(path);
+    }
+
+    /**
+     * Adds source to plan. Executables of unsupported languages are skipped, other roles require supported language
+     *
+     * @param path source path
+     * @param type source type from <code>problem.xml</code>
+     * @param role role of source
+     * @return {@link Path} to copy of source in target directory
+     */
+    public Path add(final Path path, final String type, final Role role) {
+        String name = path.getFileName().toString();
+        Source source = sources.get(name);
+        if (source == null) {
+            sources.put(name, new Source(path, type, role));
+        } else if (!source.path.equals(path)) {
+            ConsoleLogger.logInfo("Source %s has the same name as %s, it is not compiled", path, source.path);
+        } else if (role.compareTo(source.role) > 0) {
+            source.role = role;
+        }
+        return getTarget(path);
+    }
+
+    /**
+     * Gets path to copy of source in target directory
+     *
+     * @param path source path
+     * @return {@link Path} to copied source
+     */
+    public Path getTarget(final Path path) {
+        return Paths.get(directory.toString(), path.getFileName().toString());
+    }
+
+    /**
+     * Gets toolchains chosen for roles of sources, for example C++ compiler profile of checker is described by key
+     * <code>cpp.checker</code> and Python interpreter of generators by <code>python.generator</code>. It is filled by
+     * {@link #execute(int)}
+     *
+     * @return {@link Map} from toolchain key to its description
+     */
+    public Map<String, String> getToolchains() {
+        return toolchains;
+    }
+
+    /**
+     * Gets main classes of compiled Java sources, wrapper scripts of executables have the same names. It is filled
+     * by {@link #execute(int)}
+     *
+     * @return {@link Set} of main class names
+     */
+    public Set<String> getJavaMainClasses() {
+        return javaMainClasses;
+    }
+
+    /**
+     * Copies all sources to target directory and compiles them
+     *
+     * @param threads maximal number of simultaneous compilations
+     * @throws ContestException if sources couldn't be copied, compilation was interrupted or some sources
+     *                          couldn't be compiled ({@link CompilationException} describes all of them)
+     */
+    public void execute(final int threads) throws ContestException {
+        for (Source source : sources.values()) {
+            Path target = getTarget(source.path);
+            deleteFile(target);
+            copyFile(source.path, target);
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+
+        for (Source source : sources.values()) {
+            Compiler compiler = getCompiler(source);
+            if (compiler instanceof CPPCompiler) {
+                toolchains.put("cpp." + source.role.getName(), profiles.get(source.role).toString());
+            } else if (compiler instanceof PythonCompiler) {
+                // interpreter is found before compilation, so missing interpreter fails preparation once
+                toolchains.put("python." + source.role.getName(),
+                        ((PythonCompiler) compiler).getInterpreter().toString());
+            }
+        }
+        precompileHeaders();
+
+        ConsoleLogger.logInfo("Compiling %d sources using %d threads", sources.size(),
+                Math.min(threads, sources.size()));
+        List<Source> javaSources = cache != null ? List.of() : sources.values().stream()
+                .filter(source -> Compiler.forSourceType(source.type) == JavaCompiler.getInstance())
+                .collect(Collectors.toList());
+        if (javaSources.size() < 2) {
+            javaSources = List.of();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, sources.size()));
+        Map<String, Future<?>> results = new LinkedHashMap<>();
+        if (!javaSources.isEmpty()) {
+            List<Source> batch = javaSources;
+            results.put(batch.stream().map(source -> source.path.getFileName().toString())
+                    .collect(Collectors.joining(", ")), executor.submit(() -> {
+                compileJava(batch);
+                return null;
+            }));
+        }
+        for (Source source : sources.values()) {
+            if (javaSources.contains(source)) {
+                continue;
+            }
+            results.put(source.path.getFileName().toString(), executor.submit(() -> {
+                compile(source);
+                return null;
+            }));
+        }
+        executor.shutdown();
+
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<?>> result : results.entrySet()) {
+                try {
+                    result.getValue().get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CompilationException) {
+                        failures.putAll(((CompilationException) e.getCause()).getFailures());
+                    } else {
+                        ConsoleLogger.logError(e.getCause(), "Couldn't compile %s", result.getKey());
+                        failures.put(result.getKey(), e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while compiling sources", e);
+        }
+
+        if (!failures.isEmpty()) {
+            throw new CompilationException(failures);
+        }
+
+        for (Source source : sources.values()) {
+            if (Compiler.forSourceType(source.type) == JavaCompiler.getInstance()) {
+                javaMainClasses.add(JavaCompiler.getInstance().findMainClassName(getTarget(source.path)));
+            }
+        }
+        if (classDataSharing) {
+            createClassDataArchives(threads);
+        }
+    }
+
+    private Compiler getCompiler(final Source source) {
+        Compiler compiler = Compiler.forSourceType(source.type);
+        if (compiler instanceof CPPCompiler) {
+            return CPPCompiler.getInstance(profiles.get(source.role));
+        }
+        if (compiler instanceof PythonCompiler) {
+            return PythonCompiler.getInstance(profiles.getPythonInterpreter(source.role));
+        }
+        return compiler;
+    }
+
+    private void compile(final Source source) throws ContestException {
+        Compiler compiler = getCompiler(source);
+        if (compiler == null) {
+            if (source.role == Role.EXECUTABLE) {
+                ConsoleLogger.logInfo("Language of %s is not supported, skipping it", source.path.getFileName());
+                return;
+            }
+            throw new UnsupportedLanguageException(source.type);
+        }
+
+        logCompilation(source);
+        if (cache == null) {
+            compiler.compile(getTarget(source.path));
+        } else if (compiler instanceof CPPCompiler && !precompiledHeaders.isEmpty()) {
+            List<Path> inputs = new ArrayList<>(resources);
+            inputs.addAll(precompiledHeaders);
+            cache.compile(compiler, getTarget(source.path), inputs);
+        } else {
+            cache.compile(compiler, getTarget(source.path), resources);
+        }
+    }
+
+    private void compileJava(final List<Source> javaSources) throws ContestException {
+        javaSources.forEach(CompilationPlan::logCompilation);
+        try {
+            JavaCompiler.getInstance().compile(javaSources.stream()
+                    .map(source -> getTarget(source.path))
+                    .collect(Collectors.toList()));
+            return;
+        } catch (ContestException e) {
+            ConsoleLogger.logError(e, "Couldn't compile Java sources together, compiling them separately");
+        }
+
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (Source source : javaSources) {
+            try {
+                JavaCompiler.getInstance().compile(getTarget(source.path));
+            } catch (ContestException e) {
+                ConsoleLogger.logError(e, "Couldn't compile %s", source.path.getFileName());
+                failures.put(source.path.getFileName().toString(), e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new CompilationException(failures);
+        }
+    }
+
+    private void createClassDataArchives(final int threads) throws ContestException {
+        List<Source> javaSources = sources.values().stream()
+                .filter(source -> Compiler.forSourceType(source.type) == JavaCompiler.getInstance())
+                .collect(Collectors.toList());
+        if (javaSources.isEmpty()) {
+            return;
+        }
+
+        ConsoleLogger.logInfo("Creating Class Data Sharing archives of %d Java sources", javaSources.size());
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, javaSources.size()));
+        Map<Source, Future<Boolean>> results = new LinkedHashMap<>();
+        for (Source source : javaSources) {
+            results.put(source, executor.submit(() ->
+                    JavaCompiler.getInstance().createClassDataArchive(getTarget(source.path))));
+        }
+        executor.shutdown();
+
+        int created = 0;
+        try {
+            for (Map.Entry<Source, Future<Boolean>> result : results.entrySet()) {
+                try {
+                    if (result.getValue().get()) {
+                        created++;
+                    }
+                } catch (ExecutionException e) {
+                    // executable works without archive, so it is not a failure of compilation
+                    ConsoleLogger.logError(e.getCause(), "Couldn't create Class Data Sharing archive of %s",
+                            result.getKey().path.getFileName());
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new ContestException("interrupted while creating Class Data Sharing archives", e);
+        }
+        ConsoleLogger.logInfo("Created %d of %d Class Data Sharing archives in %d ms", created, javaSources.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void logCompilation(final Source source) {
+        ConsoleLogger.logInfo("Compiling %s (%s)", source.path.getFileName(),
+                source.role.name().toLowerCase(Locale.ROOT).replace('_', ' '));
+    }
+
+    private void precompileHeaders() throws ContestException {
+        List<Path> headers = resources.stream().filter(CompilationPlan::isHeader).collect(Collectors.toList());
+        for (Path header : headers) {
+            Path precompiledHeader = CPPHeaderCompiler.getPrecompiledHeader(header);
+            if (Files.exists(precompiledHeader)) {
+                // g++ doesn't check content of header, so precompiled header of its other version would be used
+                deleteFile(precompiledHeader);
+            }
+        }
+        if (!precompileHeaders) {
+            return;
+        }
+
+        List<Source> cppSources = sources.values().stream()
+                .filter(source -> Compiler.forSourceType(source.type) instanceof CPPCompiler)
+                .collect(Collectors.toList());
+        for (Path header : headers) {
+            try {
+                if (Files.size(header) < PRECOMPILED_HEADER_MIN_SIZE) {
+                    continue;
+                }
+            } catch (IOException e) {
+                throw new FileSystemException(header, e);
+            }
+
+            String name = header.getFileName().toString();
+            Pattern include = Pattern.compile("^\\s*#\\s*include\\s*\"" + Pattern.quote(name) + "\"",
+                    Pattern.MULTILINE);
+            // precompiled header can be used only by sources compiled with the same options, so it is built for
+            // options of the most of sources including header
+            Map<String, Integer> uses = new LinkedHashMap<>();
+            Map<String, CompilerProfile> usedProfiles = new HashMap<>();
+            for (Source source : cppSources) {
+                Path target = getTarget(source.path);
+                try {
+                    if (include.matcher(Files.readString(target, StandardCharsets.ISO_8859_1)).find()) {
+                        CompilerProfile profile = profiles.get(source.role);
+                        uses.merge(profile.getCompilationFlags(), 1, Integer::sum);
+                        usedProfiles.putIfAbsent(profile.getCompilationFlags(), profile);
+                    }
+                } catch (IOException e) {
+                    throw new FileSystemException(target, e);
+                }
+            }
+            Map.Entry<String, Integer> mostUsed = uses.entrySet().stream()
+                    .max(Map.Entry.comparingByValue()).orElse(null);
+            if (mostUsed == null || mostUsed.getValue() < PRECOMPILED_HEADER_MIN_USES) {
+                continue;
+            }
+
+            ConsoleLogger.logInfo("Precompiling header %s included by %d sources with options \"%s\"",
+                    header.getFileName(), mostUsed.getValue(), mostUsed.getKey());
+            CPPHeaderCompiler headerCompiler = CPPHeaderCompiler.getInstance(usedProfiles.get(mostUsed.getKey()));
+            long start = System.nanoTime();
+            try {
+                if (cache == null) {
+                    headerCompiler.compile(header);
+                } else {
+                    cache.compile(headerCompiler, header, resources);
+                }
+                precompiledHeaders.add(CPPHeaderCompiler.getPrecompiledHeader(header));
+                ConsoleLogger.logInfo("Precompiled header %s in %d ms", header.getFileName(),
+                        (System.nanoTime() - start) / 1_000_000);
+            } catch (ContestException e) {
+                ConsoleLogger.logError(e, "Couldn't precompile header %s, sources are compiled without it",
+                        header.getFileName());
+                deleteFile(CPPHeaderCompiler.getPrecompiledHeader(header));
+            }
+        }
+    }
+
+    private static boolean isHeader(final Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot != -1 && HEADER_EXTENSIONS.contains(name.substring(dot).toLowerCase(Locale.ROOT));
+    }
+
+    private static class Source {
+        private final Path path;
+        private final String type;
+        private Role role;
+
+        private Source(final Path path, final String type, final Role role) {
+            this.path = path;
+            this.type = type;
+            this.role = role;
+        }
+    }
+}
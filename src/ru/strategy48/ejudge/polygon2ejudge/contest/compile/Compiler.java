@@ -6,4 +6,28 @@ import java.nio.file.Path;
 
 public interface Compiler {
     void compile(final Path sourcePath) throws ContestException;
+
+    /**
+     * Gets description of toolchain which identifies compiled files together with sources
+     *
+     * @return toolchain description
+     */
+    String getToolchain();
+
+    /**
+     * Gets compiler for Polygon source type
+     *
+     * @param sourceType source type from <code>problem.xml</code> (for example <code>cpp.g++17</code>)
+     * @return {@link Compiler} or <code>null</code> if language is not supported
+     */
+    static Compiler forSourceType(final String sourceType) {
+        if (sourceType.contains("cpp")) {
+            return CPPCompiler.getInstance();
+        } else if (sourceType.contains("java")) {
+            return JavaCompiler.getInstance();
+        } else if (sourceType.contains("py")) {
+            return PythonCompiler.getInstance();
+        }
+        return null;
+    }
 }
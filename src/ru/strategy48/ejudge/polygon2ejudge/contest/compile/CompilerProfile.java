@@ -0,0 +1,121 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes options of C++ compilation: language standard, optimization level, target architecture, additional
+ * flags and static linking. Default profile gives <code>-std=c++17 -O2 -DEJUDGE</code>
+ */
+public class CompilerProfile {
+    private static final Pattern STANDARD_PATTERN = Pattern.compile("(c|gnu)\\+\\+\\w+");
+    private static final Set<String> OPTIMIZATION_LEVELS = Set.of("0", "1", "2", "3", "s", "g", "fast");
+    private static final Pattern ARCHITECTURE_PATTERN = Pattern.compile("[\\w.+-]+");
+
+    /**
+     * Profile used if nothing is configured
+     */
+    public static final CompilerProfile DEFAULT = new CompilerProfile("c++17", "2", null, null, false);
+
+    private final String standard;
+    private final String optimization;
+    private final String architecture;
+    private final String flags;
+    private final boolean staticLinking;
+
+    /**
+     * Constructs profile
+     *
+     * @param standard      language standard (for example <code>c++17</code> or <code>gnu++20</code>)
+     * @param optimization  optimization level without <code>-O</code> (<code>0</code>-<code>3</code>,
+     *                      <code>s</code>, <code>g</code> or <code>fast</code>)
+     * @param architecture  value of <code>-march</code> (for example <code>native</code>), <code>null</code> if it
+     *                      isn't passed
+     * @param flags         additional compilation flags separated by spaces, <code>null</code> if there are none
+     * @param staticLinking <code>true</code> if executables are linked statically
+     * @throws IllegalArgumentException if standard, optimization level or architecture is incorrect
+     */
+    public CompilerProfile(final String standard, final String optimization, final String architecture,
+                           final String flags, final boolean staticLinking) {
+        if (!STANDARD_PATTERN.matcher(standard).matches()) {
+            throw new IllegalArgumentException("Incorrect C++ standard: " + standard);
+        }
+        if (!OPTIMIZATION_LEVELS.contains(optimization)) {
+            throw new IllegalArgumentException("Incorrect optimization level: " + optimization);
+        }
+        if (architecture != null && !ARCHITECTURE_PATTERN.matcher(architecture).matches()) {
+            throw new IllegalArgumentException("Incorrect target architecture: " + architecture);
+        }
+
+        this.standard = standard;
+        this.optimization = optimization;
+        this.architecture = architecture;
+        this.flags = flags == null || flags.isBlank() ? null : flags.trim().replaceAll("\\s+", " ");
+        this.staticLinking = staticLinking;
+    }
+
+    public String getStandard() {
+        return standard;
+    }
+
+    public String getOptimization() {
+        return optimization;
+    }
+
+    public String getArchitecture() {
+        return architecture;
+    }
+
+    public String getFlags() {
+        return flags;
+    }
+
+    public boolean isStaticLinking() {
+        return staticLinking;
+    }
+
+    /**
+     * Gets flags affecting compilation of sources (precompiled headers are built with them)
+     *
+     * @return compilation flags
+     */
+    public String getCompilationFlags() {
+        return "-std=" + standard + " -O" + optimization + " -DEJUDGE"
+                + (architecture == null ? "" : " -march=" + architecture) + (flags == null ? "" : " " + flags);
+    }
+
+    /**
+     * Gets all flags passed to <code>g++</code> building executable
+     *
+     * @return compilation and linking flags
+     */
+    public String getBuildFlags() {
+        return getCompilationFlags() + (staticLinking ? " -static" : "");
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CompilerProfile profile = (CompilerProfile) o;
+        return staticLinking == profile.staticLinking && standard.equals(profile.standard)
+                && optimization.equals(profile.optimization) && Objects.equals(architecture, profile.architecture)
+                && Objects.equals(flags, profile.flags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(standard, optimization, architecture, flags, staticLinking);
+    }
+
+    @Override
+    public String toString() {
+        return getBuildFlags();
+    }
+}
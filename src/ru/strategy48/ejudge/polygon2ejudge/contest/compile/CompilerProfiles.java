@@ -0,0 +1,127 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ConfigurationException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compiler profiles of source roles loaded from properties file. Keys have form <code>role.option</code>, where role
+ * is <code>generator</code>, <code>validator</code>, <code>interactor</code>, <code>checker</code>,
+ * <code>solution</code> or <code>default</code> (options of all roles) and option is C++ option <code>std</code>,
+ * <code>optimization</code>, <code>march</code>, <code>flags</code> or <code>static</code> or Python interpreter
+ * <code>python</code> (name accepted by {@link PythonInterpreter#find(String)}). For example:
+ * <pre>
+ * checker.optimization = 3
+ * checker.march = native
+ * checker.static = true
+ * interactor.std = c++20
+ * generator.python = pypy
+ * </pre>
+ * Options which are not set for role are taken from <code>default</code> role and then from
+ * {@link CompilerProfile#DEFAULT}, default Python interpreter is the newest CPython
+ */
+public class CompilerProfiles {
+    private static final String DEFAULT_ROLE = "default";
+    private static final Set<String> OPTIONS = Set.of("std", "optimization", "march", "flags", "static",
+            "python");
+
+    private final Map<CompilationPlan.Role, CompilerProfile> profiles = new EnumMap<>(CompilationPlan.Role.class);
+    private final Map<CompilationPlan.Role, String> pythonInterpreters = new EnumMap<>(CompilationPlan.Role.class);
+
+    /**
+     * Constructs profiles using {@link CompilerProfile#DEFAULT} for all roles
+     */
+    public CompilerProfiles() {
+        for (CompilationPlan.Role role : CompilationPlan.Role.values()) {
+            profiles.put(role, CompilerProfile.DEFAULT);
+            pythonInterpreters.put(role, PythonInterpreter.CPYTHON);
+        }
+    }
+
+    /**
+     * Loads profiles from properties file
+     *
+     * @param path path to properties file
+     * @return loaded {@link CompilerProfiles}
+     * @throws ContestException if file couldn't be read or has unknown roles, options or incorrect values
+     */
+    public static CompilerProfiles load(final Path path) throws ContestException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ConfigurationException(path, e);
+        }
+
+        Set<String> roles = new HashSet<>();
+        roles.add(DEFAULT_ROLE);
+        for (CompilationPlan.Role role : CompilationPlan.Role.values()) {
+            roles.add(role.getName());
+        }
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            if (dot == -1 || !roles.contains(key.substring(0, dot)) || !OPTIONS.contains(key.substring(dot + 1))) {
+                throw new ConfigurationException(path, new IllegalArgumentException("Unknown profile option: "
+                        + key));
+            }
+        }
+
+        CompilerProfiles result = new CompilerProfiles();
+        CompilerProfile profile = CompilerProfile.DEFAULT;
+        try {
+            for (CompilationPlan.Role role : CompilationPlan.Role.values()) {
+                result.profiles.put(role, new CompilerProfile(
+                        getOption(properties, role, "std", profile.getStandard()),
+                        getOption(properties, role, "optimization", profile.getOptimization()),
+                        getOption(properties, role, "march", profile.getArchitecture()),
+                        getOption(properties, role, "flags", profile.getFlags()),
+                        parseBoolean(getOption(properties, role, "static",
+                                String.valueOf(profile.isStaticLinking())))));
+                result.pythonInterpreters.put(role, getOption(properties, role, "python", PythonInterpreter.CPYTHON));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(path, e);
+        }
+        return result;
+    }
+
+    /**
+     * Gets profile of role
+     *
+     * @param role role of source
+     * @return {@link CompilerProfile} of role
+     */
+    public CompilerProfile get(final CompilationPlan.Role role) {
+        return profiles.get(role);
+    }
+
+    /**
+     * Gets Python interpreter of role
+     *
+     * @param role role of source
+     * @return name of interpreter accepted by {@link PythonInterpreter#find(String)}
+     */
+    public String getPythonInterpreter(final CompilationPlan.Role role) {
+        return pythonInterpreters.get(role);
+    }
+
+    private static boolean parseBoolean(final String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException("Incorrect boolean value: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static String getOption(final Properties properties, final CompilationPlan.Role role,
+                                    final String option, final String defaultValue) {
+        String value = properties.getProperty(role.getName() + "." + option,
+                properties.getProperty(DEFAULT_ROLE + "." + option));
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,131 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Constant pool of compiled Java class. Only positions of entries are found while parsing, so entries can be read
+ * and class file can be patched without rewriting it
+ */
+public class ConstantPool {
+    public static final int UTF8 = 1;
+    public static final int CLASS = 7;
+    public static final int METHOD_REFERENCE = 10;
+    public static final int NAME_AND_TYPE = 12;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int COUNT_OFFSET = 8;
+
+    private final byte[] classFile;
+    private final int[] offsets;
+    private final int end;
+
+    /**
+     * Parses constant pool of class
+     *
+     * @param classFile content of class file
+     * @throws IOException if content is not a correct class file
+     */
+    public ConstantPool(final byte[] classFile) throws IOException {
+        this.classFile = classFile;
+        ByteBuffer buffer = ByteBuffer.wrap(classFile);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a class file");
+            }
+            buffer.position(COUNT_OFFSET);
+            offsets = new int[Short.toUnsignedInt(buffer.getShort())];
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] = buffer.position();
+                int tag = Byte.toUnsignedInt(buffer.get());
+                switch (tag) {
+                    case UTF8 -> {
+                        int length = Short.toUnsignedInt(buffer.getShort());
+                        buffer.position(buffer.position() + length);
+                    }
+                    case CLASS, 8, 16, 19, 20 -> buffer.position(buffer.position() + 2);
+                    case 15 -> buffer.position(buffer.position() + 3);
+                    case 3, 4, 9, METHOD_REFERENCE, 11, NAME_AND_TYPE, 17, 18 -> buffer.position(buffer.position() + 4);
+                    case 5, 6 -> {
+                        // long and double constants take two entries of constant pool
+                        buffer.position(buffer.position() + 8);
+                        i++;
+                    }
+                    default -> throw new IOException("unknown constant pool tag " + tag);
+                }
+            }
+            end = buffer.position();
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("class file is truncated", e);
+        }
+    }
+
+    /**
+     * Gets number of entries including unused entry 0 (<code>constant_pool_count</code> of class file)
+     *
+     * @return number of entries
+     */
+    public int getCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Gets tag of entry
+     *
+     * @param index index of entry
+     * @return tag of entry, 0 for unusable entries
+     */
+    public int getTag(final int index) {
+        return offsets[index] == 0 ? 0 : Byte.toUnsignedInt(classFile[offsets[index]]);
+    }
+
+    /**
+     * Gets position of entry tag in class file
+     *
+     * @param index index of entry
+     * @return offset of entry
+     */
+    public int getOffset(final int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Gets position in class file following constant pool
+     *
+     * @return offset of <code>access_flags</code>
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets index referenced by entry (for example name of class or class of method reference)
+     *
+     * @param index  index of entry
+     * @param number number of reference in entry starting from 0
+     * @return referenced index
+     */
+    public int getReference(final int index, final int number) {
+        int offset = offsets[index] + 1 + 2 * number;
+        return (Byte.toUnsignedInt(classFile[offset]) << 8) | Byte.toUnsignedInt(classFile[offset + 1]);
+    }
+
+    /**
+     * Gets value of UTF-8 entry
+     *
+     * @param index index of entry
+     * @return string value
+     * @throws IOException if value is not correct modified UTF-8
+     */
+    public String getUtf8(final int index) throws IOException {
+        int offset = offsets[index] + 1;
+        int length = getReference(index, 0) + 2;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(classFile, offset, length))) {
+            return input.readUTF();
+        }
+    }
+}
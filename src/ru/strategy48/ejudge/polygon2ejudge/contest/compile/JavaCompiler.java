@@ -1,98 +1,242 @@
 package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
 
-import com.github.javaparser.JavaParser;
-import com.github.javaparser.ast.AccessSpecifier;
-import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.Parameter;
+import org.apache.commons.codec.digest.DigestUtils;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
 import ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.FileSystemException;
 
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compiles Java sources inside running JVM using system Java compiler (<code>javax.tools</code>), so JVM isn't
+ * started for every source. Classes are compiled for release of external <code>java</code> if it is older than
+ * compiler, because executables are run by it. External <code>javac</code> is used only if system compiler is not
+ * available (for example if application is run by JRE)
+ */
 public class JavaCompiler extends AbstractCompiler implements Compiler {
+    private static final int MIN_RELEASE = 8;
+    private static final Pattern COMPILER_VERSION_PATTERN = Pattern.compile("javac (?:1\\.)?(\\d+)");
+    private static final Pattern RUNTIME_VERSION_PATTERN = Pattern.compile("version \"(?:1\\.)?(\\d+)");
+    private static final List<String> JVM_OPTIONS = List.of("-Xmx512M", "-Xss512M", "-DEJUDGE=true",
+            "-Duser.language=en", "-Duser.region=US", "-Duser.variant=US");
+    // JVM prints to standard output warning about archive it can't use (for example after update of Java)
+    private static final String ARCHIVE_OPTIONS = "-XX:SharedArchiveFile=\"$(dirname \"$0\")/%s\" "
+            + "-Xlog:cds=off,cds+dynamic=off";
+
     private static JavaCompiler instance;
 
+    private final javax.tools.JavaCompiler systemCompiler = ToolProvider.getSystemJavaCompiler();
+    private final Map<String, Optional<String>> mainClassNames = new ConcurrentHashMap<>();
+
     private JavaCompiler() {
-        super("javac -cp %s %s");
+        // java prints version to standard error, it is merged with output of version command
+        super("javac %s-cp %s %s", "javac -version; java -version");
+        if (systemCompiler == null) {
+            ConsoleLogger.logInfo("System Java compiler is not available, external javac is used");
+        }
     }
 
     @Override
     public void compile(final Path sourcePath) throws ContestException {
-        String className = findMainClassName(sourcePath);
-        Path newSourcePath;
-        if (!sourcePath.equals(Path.of(sourcePath.getParent().toString(), className + ".java"))) {
-            newSourcePath = Path.of(sourcePath.getParent().toString(), className + ".java");
-            FileUtils.copyFile(sourcePath, newSourcePath);
+        compile(List.of(sourcePath));
+    }
+
+    /**
+     * Compiles several sources placed to the same directory in one compilation task. If some source couldn't be
+     * compiled, classes of other sources may be not created too
+     *
+     * @param sourcePaths source paths
+     * @throws ContestException if sources couldn't be compiled
+     */
+    public void compile(final List<Path> sourcePaths) throws ContestException {
+        List<Path> newSourcePaths = new ArrayList<>();
+        for (Path sourcePath : sourcePaths) {
+            String className = findMainClassName(sourcePath);
+            Path newSourcePath;
+            if (!sourcePath.equals(Path.of(sourcePath.getParent().toString(), className + ".java"))) {
+                newSourcePath = Path.of(sourcePath.getParent().toString(), className + ".java");
+                FileUtils.copyFile(sourcePath, newSourcePath);
+            } else {
+                newSourcePath = sourcePath;
+            }
+            newSourcePaths.add(newSourcePath);
+        }
+
+        if (systemCompiler == null) {
+            int compilerRelease = findRelease(COMPILER_VERSION_PATTERN);
+            int release = getRelease(compilerRelease == -1 ? Runtime.version().feature() : compilerRelease);
+            for (Path newSourcePath : newSourcePaths) {
+                super.compile(newSourcePath, release == -1 ? "" : "--release " + release + " ",
+                        newSourcePath.getParent(), newSourcePath);
+            }
         } else {
-            newSourcePath = sourcePath;
+            compileInProcess(newSourcePaths);
         }
+        for (Path newSourcePath : newSourcePaths) {
+            prepareExecutable(newSourcePath);
+        }
+    }
+
+    @Override
+    public synchronized String getToolchain() {
+        if (systemCompiler == null) {
+            return super.getToolchain();
+        }
+        return super.getToolchain() + "\n" + systemCompiler.getClass().getName() + " " + Runtime.version();
+    }
+
+    /**
+     * Creates Class Data Sharing archive of compiled Java executable by {@link ClassDataArchive} and makes its
+     * wrapper script run it with archive. Script is left unchanged if archive couldn't be created
+     *
+     * @param sourcePath path to compiled source
+     * @return <code>true</code> if archive was created
+     * @throws ContestException if source, classes or script couldn't be read or written
+     */
+    public boolean createClassDataArchive(final Path sourcePath) throws ContestException {
+        String className = findMainClassName(sourcePath);
+        Path directory = sourcePath.getParent();
+        if (!ClassDataArchive.create(directory, className, JVM_OPTIONS)) {
+            return false;
+        }
+        Path archive = ClassDataArchive.getArchive(directory, className);
+        Path jar = ClassDataArchive.getJar(directory, className);
+        writeScript(directory.resolve(className), String.format(ARCHIVE_OPTIONS, archive.getFileName()),
+                String.format("\"$(dirname \"$0\")/%s\"", jar.getFileName()));
+        return true;
+    }
 
-        super.compile(newSourcePath, newSourcePath.getParent(), newSourcePath);
-        prepareExecutable(newSourcePath);
+    /**
+     * Gets options of JVM running executables by wrapper scripts
+     *
+     * @return {@link List} of JVM options
+     */
+    public static List<String> getJvmOptions() {
+        return JVM_OPTIONS;
     }
 
-    public static JavaCompiler getInstance() {
+    public static synchronized JavaCompiler getInstance() {
         if (instance == null) {
             instance = new JavaCompiler();
         }
         return instance;
     }
 
+    private void compileInProcess(final List<Path> sourcePaths) throws ContestException {
+        Path directory = sourcePaths.get(0).getParent();
+        List<String> options = new ArrayList<>(List.of("-cp", directory.toString(), "-d", directory.toString()));
+        int release = getRelease(Runtime.version().feature());
+        if (release != -1) {
+            options.addAll(List.of("--release", String.valueOf(release)));
+        }
+
+        ConsoleLogger.logInfo("Compiling %s in process with options %s", sourcePaths, options);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success;
+        try (StandardJavaFileManager fileManager = systemCompiler.getStandardFileManager(diagnostics, Locale.US,
+                null)) {
+            success = systemCompiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromPaths(sourcePaths)).call();
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            throw new ContestException("couldn't compile " + sourcePaths + " in process", e);
+        }
+
+        String firstError = null;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            String message = String.format("%s:%d: %s: %s",
+                    diagnostic.getSource() == null ? "javac" : Path.of(diagnostic.getSource().toUri()).getFileName(),
+                    diagnostic.getLineNumber(), diagnostic.getKind().name().toLowerCase(Locale.ROOT),
+                    diagnostic.getMessage(Locale.US));
+            ConsoleLogger.logInfo(message);
+            if (firstError == null && diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                firstError = message;
+            }
+        }
+        if (!success) {
+            throw new ContestException("couldn't compile " + sourcePaths
+                    + (firstError == null ? "" : " (" + firstError + ")"));
+        }
+    }
+
+    /**
+     * Gets release classes have to be compiled for, so external <code>java</code> running executables can load them
+     *
+     * @param compilerRelease release of compiler
+     * @return release of <code>java</code> or <code>-1</code> if classes are compiled for compiler release
+     */
+    private int getRelease(final int compilerRelease) {
+        int release = findRelease(RUNTIME_VERSION_PATTERN);
+        return release >= MIN_RELEASE && release < compilerRelease ? release : -1;
+    }
+
+    private int findRelease(final Pattern pattern) {
+        Matcher matcher = pattern.matcher(getVersion());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
     private void prepareExecutable(final Path sourcePath) throws ContestException {
+        writeScript(FileUtils.removeExtension(sourcePath), null, "\"$(dirname \"$0\")\"");
+    }
+
+    private static void writeScript(final Path scriptPath, final String archiveOptions, final String classPath)
+            throws ContestException {
         String script = "#!/bin/bash" + System.lineSeparator() +
-                String.format("java -Xmx512M -Xss512M -DEJUDGE=true -Duser.language=en -Duser.region=US " +
-                        "-Duser.variant=US -cp %s %s \"$@\"", sourcePath.getParent(),
-                        FileUtils.removeExtension(sourcePath.getFileName())) + System.lineSeparator();
-        FileUtils.writeFile(FileUtils.removeExtension(sourcePath), script);
-        FileUtils.makeExecutable(FileUtils.removeExtension(sourcePath));
+                String.format("java %s%s -cp %s %s \"$@\"", archiveOptions == null ? "" : archiveOptions + " ",
+                        String.join(" ", JVM_OPTIONS), classPath, scriptPath.getFileName()) + System.lineSeparator();
+        FileUtils.writeFile(scriptPath, script);
+        FileUtils.makeExecutable(scriptPath);
     }
 
+    /**
+     * Finds main class of Java source. Source is scanned by {@link MainClassScanner} and parsed only if scanner
+     * couldn't handle it, results are cached by hash of source content
+     *
+     * @param sourcePath source path
+     * @return name of main class or <code>null</code> if there is no main class
+     * @throws ContestException if source couldn't be read or parsed
+     */
     public String findMainClassName(final Path sourcePath) throws ContestException {
-        String source = FileUtils.readFile(sourcePath);
-        JavaParser parser = new JavaParser();
-        Optional<CompilationUnit> cuOpt = parser.parse(source).getResult();
-        if (cuOpt.isEmpty()) {
-            throw new ContestException("Cannot compile file " + sourcePath);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(sourcePath);
+        } catch (IOException e) {
+            throw new FileSystemException(sourcePath, e);
         }
-        CompilationUnit cu = cuOpt.get();
 
-        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-        for (ClassOrInterfaceDeclaration classDeclaration : classes) {
-            if (classDeclaration.isInterface() || classDeclaration.isInnerClass() || classDeclaration.isLocalClassDeclaration()) {
-                continue;
-            }
-
-            List<MethodDeclaration> methods = classDeclaration.findAll(MethodDeclaration.class);
-            for (MethodDeclaration methodDeclaration : methods) {
-                if (methodDeclaration.getAccessSpecifier() != AccessSpecifier.PUBLIC) {
-                    continue;
-                }
-                if (!methodDeclaration.isStatic()) {
-                    continue;
-                }
-                if (!methodDeclaration.getType().toString().equals("void")) {
-                    continue;
-                }
-                if (!methodDeclaration.getNameAsString().equals("main")) {
-                    continue;
-                }
-
-                List<Parameter> parameters = methodDeclaration.getParameters();
-                if (parameters.size() != 1) {
-                    continue;
-                }
-                if (!parameters.get(0).getType().toString().equals("String[]")) {
-                    continue;
-                }
-
-                return classDeclaration.getNameAsString();
-            }
+        String hash = DigestUtils.sha256Hex(content);
+        Optional<String> cachedClassName = mainClassNames.get(hash);
+        if (cachedClassName != null) {
+            return cachedClassName.orElse(null);
         }
 
-        return null;
+        String source = new String(content, Charset.defaultCharset());
+        MainClassScanner.Result result = MainClassScanner.scan(source);
+        String className;
+        if (result.isAmbiguous()) {
+            ConsoleLogger.logInfo("Couldn't find main class of %s by scanning, parsing it", sourcePath.getFileName());
+            className = JavaParserMainClassFinder.findMainClassName(source, sourcePath);
+        } else {
+            className = result.getClassName();
+        }
+        mainClassNames.put(hash, Optional.ofNullable(className));
+        return className;
     }
 }
@@ -0,0 +1,73 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.AccessSpecifier;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Finds main class of Java source by parsing it with JavaParser. It is used only for sources which
+ * {@link MainClassScanner} couldn't handle, so JavaParser is loaded only when such source appears
+ */
+public class JavaParserMainClassFinder {
+    /**
+     * Finds main class of Java source
+     *
+     * @param source     source text
+     * @param sourcePath source path
+     * @return name of main class or <code>null</code> if there is no main class
+     * @throws ContestException if source couldn't be parsed
+     */
+    public static String findMainClassName(final String source, final Path sourcePath) throws ContestException {
+        JavaParser parser = new JavaParser();
+        Optional<CompilationUnit> cuOpt = parser.parse(source).getResult();
+        if (cuOpt.isEmpty()) {
+            throw new ContestException("Cannot compile file " + sourcePath);
+        }
+        CompilationUnit cu = cuOpt.get();
+
+        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
+        for (ClassOrInterfaceDeclaration classDeclaration : classes) {
+            if (classDeclaration.isInterface() || classDeclaration.isInnerClass()
+                    || classDeclaration.isLocalClassDeclaration()) {
+                continue;
+            }
+
+            List<MethodDeclaration> methods = classDeclaration.findAll(MethodDeclaration.class);
+            for (MethodDeclaration methodDeclaration : methods) {
+                if (methodDeclaration.getAccessSpecifier() != AccessSpecifier.PUBLIC) {
+                    continue;
+                }
+                if (!methodDeclaration.isStatic()) {
+                    continue;
+                }
+                if (!methodDeclaration.getType().toString().equals("void")) {
+                    continue;
+                }
+                if (!methodDeclaration.getNameAsString().equals("main")) {
+                    continue;
+                }
+
+                List<Parameter> parameters = methodDeclaration.getParameters();
+                if (parameters.size() != 1) {
+                    continue;
+                }
+                if (!parameters.get(0).getType().toString().equals("String[]")) {
+                    continue;
+                }
+
+                return classDeclaration.getNameAsString();
+            }
+        }
+
+        return null;
+    }
+}
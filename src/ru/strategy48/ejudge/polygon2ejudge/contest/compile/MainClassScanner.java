@@ -0,0 +1,186 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Finds main class of Java source by scanning its tokens without building syntax tree. Comments, string, text
+ * block and character literals are skipped, braces are counted to find bodies of top-level classes. Main class is
+ * the first top-level class (not interface, enum or record) declaring
+ * <code>public static void main(String[] name)</code>.
+ * <p>
+ * Scanner recognizes only common form of sources. It reports ambiguity (so source has to be parsed) if source has
+ * unicode escapes or unterminated literals, if <code>main</code> is declared in nested or local class, or if its
+ * declaration has annotations, type parameters or parameters written in other form. Ambiguity is reported if no
+ * main class is found too
+ */
+public class MainClassScanner {
+    /**
+     * Result of scanning, {@link #className} is <code>null</code> if source is ambiguous
+     */
+    public static class Result {
+        private static final Result AMBIGUOUS = new Result(null);
+
+        private final String className;
+
+        private Result(final String className) {
+            this.className = className;
+        }
+
+        public boolean isAmbiguous() {
+            return className == null;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+    }
+
+    private enum Declaration {
+        CANDIDATE, OTHER
+    }
+
+    /**
+     * Finds main class of Java source
+     *
+     * @param source source text
+     * @return {@link Result} with name of main class or ambiguous result
+     */
+    public static Result scan(final String source) {
+        List<String> tokens = tokenize(source);
+        if (tokens == null) {
+            return Result.AMBIGUOUS;
+        }
+
+        int depth = 0;
+        Declaration declaration = null;
+        String className = null;
+        int memberStart = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            switch (token) {
+                case "{" -> {
+                    depth++;
+                    memberStart = i + 1;
+                }
+                case "}" -> {
+                    depth--;
+                    if (depth == 0) {
+                        declaration = null;
+                    }
+                    memberStart = i + 1;
+                }
+                case ";" -> memberStart = i + 1;
+                case "class", "interface", "enum", "record" -> {
+                    if (depth != 0 || declaration != null || i + 1 == tokens.size()
+                            || !isIdentifier(tokens.get(i + 1)) || i > 0 && tokens.get(i - 1).equals(".")
+                            || token.equals("record") && (i + 2 == tokens.size() || !tokens.get(i + 2).equals("("))) {
+                        continue;
+                    }
+                    declaration = token.equals("class") ? Declaration.CANDIDATE : Declaration.OTHER;
+                    className = tokens.get(i + 1);
+                }
+                case "main" -> {
+                    if (depth == 0 || declaration == null || i + 1 == tokens.size() || !tokens.get(i + 1).equals("(")
+                            || !tokens.get(i - 1).equals("void")) {
+                        continue;
+                    }
+                    if (depth > 1) {
+                        return Result.AMBIGUOUS;
+                    }
+                    if (declaration == Declaration.OTHER) {
+                        continue;
+                    }
+
+                    List<String> modifiers = tokens.subList(memberStart, i - 1);
+                    if (modifiers.contains("@") || modifiers.contains("<")) {
+                        return Result.AMBIGUOUS;
+                    }
+                    if (!modifiers.contains("public") || !modifiers.contains("static")) {
+                        continue;
+                    }
+
+                    int parameter = i + 2;
+                    if (parameter < tokens.size() && tokens.get(parameter).equals("final")) {
+                        parameter++;
+                    }
+                    if (tokens.size() > parameter + 4 && tokens.get(parameter).equals("String")
+                            && tokens.get(parameter + 1).equals("[") && tokens.get(parameter + 2).equals("]")
+                            && isIdentifier(tokens.get(parameter + 3)) && tokens.get(parameter + 4).equals(")")) {
+                        return new Result(className);
+                    }
+                    return Result.AMBIGUOUS;
+                }
+                default -> {
+                }
+            }
+        }
+        return Result.AMBIGUOUS;
+    }
+
+    private static List<String> tokenize(final String source) {
+        List<String> tokens = new ArrayList<>();
+        int length = source.length();
+        int position = 0;
+        while (position < length) {
+            char c = source.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (c == '\\') {
+                // unicode escapes may hide any part of source
+                return null;
+            } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '/') {
+                int end = source.indexOf('\n', position);
+                position = end == -1 ? length : end + 1;
+            } else if (c == '/' && position + 1 < length && source.charAt(position + 1) == '*') {
+                int end = source.indexOf("*/", position + 2);
+                if (end == -1) {
+                    return null;
+                }
+                position = end + 2;
+            } else if (source.startsWith("\"\"\"", position)) {
+                position = skipLiteral(source, position + 3, "\"\"\"");
+                if (position == -1) {
+                    return null;
+                }
+            } else if (c == '"' || c == '\'') {
+                position = skipLiteral(source, position + 1, String.valueOf(c));
+                if (position == -1) {
+                    return null;
+                }
+            } else if (Character.isJavaIdentifierStart(c) || Character.isDigit(c)) {
+                int start = position;
+                while (position < length && Character.isJavaIdentifierPart(source.charAt(position))) {
+                    position++;
+                }
+                tokens.add(source.substring(start, position));
+            } else {
+                tokens.add(String.valueOf(c));
+                position++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipLiteral(final String source, final int start, final String quote) {
+        for (int position = start; position < source.length(); position++) {
+            char c = source.charAt(position);
+            if (c == '\\') {
+                position++;
+                if (position < source.length() && source.charAt(position) == 'u') {
+                    return -1;
+                }
+            } else if (source.startsWith(quote, position)) {
+                return position + quote.length();
+            } else if (c == '\n' && quote.length() == 1) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifier(final String token) {
+        return Character.isJavaIdentifierStart(token.charAt(0));
+    }
+}
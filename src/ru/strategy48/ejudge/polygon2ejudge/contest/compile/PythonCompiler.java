@@ -1,33 +1,110 @@
 package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
 
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
 import ru.strategy48.ejudge.polygon2ejudge.contest.FileUtils;
 import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ScriptException;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Compiles Python sources to bytecode (<code>.pyc</code> file placed next to source), so executables don't parse
+ * sources on every run. Wrapper script runs bytecode by the same interpreter it was compiled by, interpreter is
+ * chosen by {@link PythonInterpreter#find(String)} when it is needed for the first time
+ */
 public class PythonCompiler extends AbstractCompiler implements Compiler {
-    private static PythonCompiler instance;
+    private static final Map<String, PythonCompiler> instances = new HashMap<>();
+    private static final String COMPILATION_CODE = "import py_compile, sys; "
+            + "py_compile.compile(sys.argv[1], cfile=sys.argv[2], dfile=sys.argv[3], doraise=True)";
 
-    private PythonCompiler() {
+    private final String interpreterName;
+    private PythonInterpreter interpreter;
+
+    private PythonCompiler(final String interpreterName) {
         super(null);
+        this.interpreterName = interpreterName;
     }
 
     @Override
     public void compile(final Path sourcePath) throws ContestException {
-        super.compile(sourcePath);
-        prepareExecutable(sourcePath);
+        Path bytecodePath = getBytecodePath(sourcePath);
+        String fileName = sourcePath.getFileName().toString();
+        List<String> command = List.of(getInterpreter().getPath().toString(), "-c", COMPILATION_CODE, fileName,
+                bytecodePath.getFileName().toString(), fileName);
+        ConsoleLogger.logInfo("Compiling %s to bytecode by %s", fileName, getInterpreter());
+
+        try {
+            Process compilation = new ProcessBuilder(command)
+                    .directory(sourcePath.getParent().toFile())
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(compilation.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (compilation.waitFor() != 0) {
+                if (!output.isEmpty()) {
+                    ConsoleLogger.logInfo(output);
+                }
+                throw new ScriptException(String.join(" ", command));
+            }
+        } catch (IOException e) {
+            throw new ScriptException(String.join(" ", command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException(String.join(" ", command), e);
+        }
+        prepareExecutable(sourcePath, bytecodePath);
     }
 
-    public static PythonCompiler getInstance() {
-        if (instance == null) {
-            instance = new PythonCompiler();
+    /**
+     * Gets interpreter compiling sources and running executables, it is found once
+     *
+     * @return {@link PythonInterpreter}
+     * @throws ContestException if interpreter couldn't be found
+     */
+    public synchronized PythonInterpreter getInterpreter() throws ContestException {
+        if (interpreter == null) {
+            interpreter = PythonInterpreter.find(interpreterName);
+        }
+        return interpreter;
+    }
+
+    @Override
+    public synchronized String getToolchain() {
+        // bytecode format depends on version, so cached bytecode is not reused by other interpreter
+        try {
+            return super.getToolchain() + "\n" + getInterpreter();
+        } catch (ContestException e) {
+            return super.getToolchain() + "\n" + interpreterName;
         }
-        return instance;
     }
 
-    private void prepareExecutable(Path sourcePath) throws ContestException {
+    public static PythonCompiler getInstance() {
+        return getInstance(PythonInterpreter.CPYTHON);
+    }
+
+    /**
+     * Gets compiler using given interpreter
+     *
+     * @param interpreterName name of interpreter accepted by {@link PythonInterpreter#find(String)}
+     * @return {@link PythonCompiler} running executables by interpreter
+     */
+    public static synchronized PythonCompiler getInstance(final String interpreterName) {
+        return instances.computeIfAbsent(interpreterName, PythonCompiler::new);
+    }
+
+    private static Path getBytecodePath(final Path sourcePath) {
+        return Path.of(FileUtils.removeExtension(sourcePath) + ".pyc");
+    }
+
+    private void prepareExecutable(final Path sourcePath, final Path bytecodePath) throws ContestException {
         String script = "#!/bin/bash" + System.lineSeparator() +
-                String.format("/usr/bin/python3.9 %s \"$@\"", sourcePath) + System.lineSeparator();
+                String.format("\"%s\" \"$(dirname \"$0\")/%s\" \"$@\"", getInterpreter().getPath(),
+                        bytecodePath.getFileName()) + System.lineSeparator();
         FileUtils.writeFile(FileUtils.removeExtension(sourcePath), script);
         FileUtils.makeExecutable(FileUtils.removeExtension(sourcePath));
     }
@@ -0,0 +1,200 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.compile;
+
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Python 3 interpreter (CPython or PyPy) found in <code>PATH</code> or given by path. Interpreter is identified by
+ * real path of its binary, so bytecode compiled by it is run by the same version even if <code>python3</code> link
+ * is changed later
+ */
+public class PythonInterpreter {
+    /**
+     * Chooses the newest CPython found in <code>PATH</code>
+     */
+    public static final String CPYTHON = "cpython";
+
+    /**
+     * Chooses the newest PyPy found in <code>PATH</code>
+     */
+    public static final String PYPY = "pypy";
+
+    private static final List<String> NAMES = new ArrayList<>();
+    private static final String PROBE_CODE = "import platform, sys; print(platform.python_implementation()); "
+            + "print('.'.join(map(str, sys.version_info[:3])))";
+    private static final long PROBE_TIMEOUT_SECONDS = 10;
+
+    private static List<PythonInterpreter> discovered;
+
+    static {
+        for (String name : List.of("python", "pypy")) {
+            NAMES.add(name + "3");
+            for (int minor = 6; minor <= 14; minor++) {
+                NAMES.add(name + "3." + minor);
+            }
+        }
+        NAMES.add("pypy");
+    }
+
+    private final Path path;
+    private final String implementation;
+    private final String version;
+
+    private PythonInterpreter(final Path path, final String implementation, final String version) {
+        this.path = path;
+        this.implementation = implementation;
+        this.version = version;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getImplementation() {
+        return implementation;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Finds interpreter by name
+     *
+     * @param name {@link #CPYTHON}, {@link #PYPY}, path to interpreter or name of command in <code>PATH</code>
+     * @return {@link PythonInterpreter}
+     * @throws ContestException if there is no such interpreter or it is not Python 3
+     */
+    public static PythonInterpreter find(final String name) throws ContestException {
+        if (name.equalsIgnoreCase(CPYTHON) || name.equalsIgnoreCase(PYPY)) {
+            return discover().stream()
+                    .filter(interpreter -> interpreter.implementation.equalsIgnoreCase(name))
+                    .max(Comparator.comparing(PythonInterpreter::getVersion, PythonInterpreter::compareVersions))
+                    .orElseThrow(() -> new ContestException("there is no " + name + " interpreter in PATH"));
+        }
+
+        Path path = name.contains(File.separator) ? Paths.get(name) : findInPath(name);
+        PythonInterpreter interpreter = path == null ? null : probe(path);
+        if (interpreter == null) {
+            throw new ContestException("couldn't find Python 3 interpreter " + name);
+        }
+        return interpreter;
+    }
+
+    /**
+     * Finds all Python 3 interpreters in <code>PATH</code>, they are looked for once
+     *
+     * @return {@link List} of found interpreters
+     */
+    public static synchronized List<PythonInterpreter> discover() {
+        if (discovered == null) {
+            Set<Path> paths = new LinkedHashSet<>();
+            for (String name : NAMES) {
+                Path path = findInPath(name);
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+            discovered = new ArrayList<>();
+            for (Path path : paths) {
+                PythonInterpreter interpreter = probe(path);
+                if (interpreter != null) {
+                    ConsoleLogger.logInfo("Found Python interpreter %s", interpreter);
+                    discovered.add(interpreter);
+                }
+            }
+        }
+        return discovered;
+    }
+
+    private static Path findInPath(final String name) {
+        String pathVariable = System.getenv("PATH");
+        if (pathVariable == null) {
+            return null;
+        }
+        for (String directory : pathVariable.split(File.pathSeparator)) {
+            Path path = Paths.get(directory.isEmpty() ? "." : directory, name);
+            if (Files.isRegularFile(path) && Files.isExecutable(path)) {
+                try {
+                    return path.toRealPath();
+                } catch (IOException e) {
+                    ConsoleLogger.logError(e, "Couldn't resolve path %s", path);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static PythonInterpreter probe(final Path path) {
+        try {
+            Path realPath = path.toRealPath();
+            // output of probe is short and fits into pipe, so it is read after process has finished and hanging
+            // binary (for example waiting for input) is stopped by timeout
+            Process process = new ProcessBuilder(realPath.toString(), "-c", PROBE_CODE)
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                ConsoleLogger.logInfo("%s didn't respond in %d seconds, it is skipped", realPath,
+                        PROBE_TIMEOUT_SECONDS);
+                process.destroyForcibly();
+                return null;
+            }
+            byte[] output = process.getInputStream().readAllBytes();
+            String[] lines = new String(output, StandardCharsets.UTF_8).trim().split("\\s+");
+            if (process.exitValue() != 0 || lines.length != 2 || !lines[1].startsWith("3.")) {
+                return null;
+            }
+            return new PythonInterpreter(realPath, lines[0], lines[1]);
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static int compareVersions(final String first, final String second) {
+        String[] firstParts = first.split("\\.");
+        String[] secondParts = second.split("\\.");
+        for (int i = 0; i < Math.min(firstParts.length, secondParts.length); i++) {
+            int result = Integer.compare(Integer.parseInt(firstParts[i]), Integer.parseInt(secondParts[i]));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(firstParts.length, secondParts.length);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PythonInterpreter that = (PythonInterpreter) o;
+        return path.equals(that.path) && implementation.equals(that.implementation) && version.equals(that.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, implementation, version);
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + implementation + " " + version + ")";
+    }
+}
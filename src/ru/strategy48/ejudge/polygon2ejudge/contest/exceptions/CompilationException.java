@@ -0,0 +1,26 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.exceptions;
+
+import java.util.Map;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes {@link Exception} thrown if one or more problem sources couldn't be compiled
+ */
+public class CompilationException extends ContestException {
+    private final Map<String, Throwable> failures;
+
+    /**
+     * Constructs exception from failed sources
+     *
+     * @param failures failed source names mapped to errors that happened while compiling them
+     */
+    public CompilationException(final Map<String, Throwable> failures) {
+        super("couldn't compile sources: " + String.join(", ", failures.keySet()));
+        this.failures = failures;
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.exceptions;
+
+import java.util.Map;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes {@link Exception} thrown if one or more contest problems couldn't be prepared
+ */
+public class ProblemsPreparationException extends ContestException {
+    private final Map<String, Throwable> failures;
+
+    /**
+     * Constructs exception from failed problems
+     *
+     * @param failures failed problem names mapped to errors that happened while preparing them
+     */
+    public ProblemsPreparationException(final Map<String, Throwable> failures) {
+        super("couldn't prepare problems: " + String.join(", ", failures.keySet()));
+        this.failures = failures;
+        failures.values().forEach(this::addSuppressed);
+    }
+
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+}
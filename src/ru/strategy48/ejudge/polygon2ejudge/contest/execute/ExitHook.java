@@ -0,0 +1,34 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.execute;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Replacement of <code>System.exit</code> for executables run by {@link JavaToolServer}. Calls of
+ * <code>System.exit</code> in their classes are redirected to {@link #exit(int)}, which ends executable instead of
+ * the whole JVM
+ */
+public class ExitHook {
+    /**
+     * Thrown by {@link #exit(int)}, it is an {@link Error} so executables catching exceptions don't stop it
+     */
+    public static class ExitError extends Error {
+        private final int status;
+
+        private ExitError(final int status) {
+            super("exit with status " + status, null, false, false);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Ends executable with exit status
+     *
+     * @param status exit status
+     */
+    public static void exit(final int status) {
+        throw new ExitError(status);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.execute;
+
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.JavaCompiler;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ScriptException;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Runs Java executables of problem in one warm JVM ({@link JavaToolServer}) instead of starting JVM by wrapper
+ * script for every command. Server is started by the same <code>java</code> and with the same options as wrapper
+ * scripts when the first command is executed, its working directory is problem directory. Requests are sent by
+ * loopback socket, standard output of server is discarded and its standard error is shown
+ * <p>
+ * Only simple commands (executable name and arguments without quotes, redirections and other shell syntax) run in
+ * problem directory are executed. Other commands and all commands after failure of server are left to shell
+ */
+public class JavaToolExecutor implements AutoCloseable {
+    private static final Pattern SHELL_SYNTAX_PATTERN = Pattern.compile("[\"'\\\\$`|&;<>(){}*?\\[\\]~#]");
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int CONNECTION_TIMEOUT_MILLIS = 30_000;
+
+    private final Path directory;
+    private final Set<String> mainClasses;
+
+    private Process server;
+    private Socket socket;
+    private DataOutputStream requests;
+    private DataInputStream responses;
+    private boolean failed = false;
+    private int executions = 0;
+
+    /**
+     * Constructs executor, server is not started until the first command
+     *
+     * @param directory   problem directory containing classes and wrapper scripts of executables
+     * @param mainClasses names of main classes of Java executables (their wrapper scripts have the same names)
+     */
+    public JavaToolExecutor(final Path directory, final Set<String> mainClasses) {
+        this.directory = directory.toAbsolutePath().normalize();
+        this.mainClasses = mainClasses;
+    }
+
+    /**
+     * Executes command in warm JVM if it runs Java executable
+     *
+     * @param cmd               command line
+     * @param workingDirectory  directory command is executed in
+     * @param inputRedirection  file standard input is read from, <code>null</code> if input is empty
+     * @param outputRedirection file standard output is written to, <code>null</code> if output is discarded
+     * @return <code>true</code> if command was executed, <code>false</code> if it has to be executed by shell
+     * @throws ContestException if executable finished with non-zero exit status
+     */
+    public synchronized boolean execute(final String cmd, final Path workingDirectory, final Path inputRedirection,
+                                        final Path outputRedirection) throws ContestException {
+        if (failed || SHELL_SYNTAX_PATTERN.matcher(cmd).find()
+                || !workingDirectory.toAbsolutePath().normalize().equals(directory)) {
+            return false;
+        }
+        String[] tokens = cmd.trim().split("\\s+");
+        if (!mainClasses.contains(tokens[0])) {
+            return false;
+        }
+
+        int status;
+        try {
+            if (server == null) {
+                start();
+            }
+            requests.writeUTF(tokens[0]);
+            requests.writeUTF(inputRedirection == null ? "" : inputRedirection.toAbsolutePath().toString());
+            requests.writeUTF(outputRedirection == null ? "" : outputRedirection.toAbsolutePath().toString());
+            requests.writeInt(tokens.length - 1);
+            for (int i = 1; i < tokens.length; i++) {
+                requests.writeUTF(tokens[i]);
+            }
+            requests.flush();
+            status = responses.readInt();
+        } catch (IOException e) {
+            // executable could stop JVM (for example by Runtime.halt), command is repeated by shell
+            ConsoleLogger.logError(e, "Warm JVM failed, Java executables are run by scripts");
+            failed = true;
+            stop();
+            return false;
+        }
+
+        executions++;
+        if (status != 0) {
+            throw new ScriptException(cmd);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            ConsoleLogger.logInfo("Warm JVM executed %d commands", executions);
+            stop();
+        }
+    }
+
+    private void start() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("java");
+        command.addAll(JavaCompiler.getJvmOptions());
+        // server is started in problem directory, so relative entries of class path are resolved now
+        String classPath = Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            command.addAll(List.of("-cp", classPath, JavaToolServer.class.getName(), directory.toString(),
+                    String.valueOf(listener.getLocalPort())));
+            ConsoleLogger.logInfo("Starting warm JVM: %s", String.join(" ", command));
+
+            server = new ProcessBuilder(command)
+                    .directory(directory.toFile())
+                    .redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            listener.setSoTimeout(CONNECTION_TIMEOUT_MILLIS);
+            socket = listener.accept();
+        }
+        socket.setTcpNoDelay(true);
+        requests = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        responses = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (responses.readInt() != JavaToolServer.READY) {
+            throw new IOException("warm JVM didn't start");
+        }
+    }
+
+    private void stop() {
+        if (server == null) {
+            return;
+        }
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+            if (!server.waitFor(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        } catch (IOException e) {
+            server.destroyForcibly();
+        } catch (InterruptedException e) {
+            server.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        server = null;
+        socket = null;
+    }
+}
@@ -0,0 +1,301 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.execute;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.compile.ConstantPool;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Warm JVM running Java executables of problem one by one, it is started by {@link JavaToolExecutor}. Requests are
+ * read from and exit statuses are written to loopback socket connected to executor, so executables can't reach
+ * them through standard streams. Every executable is loaded by its own class loader, so static state isn't shared
+ * between runs. Standard input and output are redirected to files of request, standard error is left to the server
+ * and calls of <code>System.exit</code> in loaded classes are redirected to {@link ExitHook}
+ * <p>
+ * Like JVM shutdown, run ends when all non-daemon threads started by executable have finished or when
+ * <code>System.exit</code> is called by any of them. Threads still running after exit are interrupted and then
+ * only see closed streams of the run
+ * <p>
+ * Request consists of main class name, input and output paths (empty if stream is not redirected), number of
+ * arguments and arguments, all strings are written by {@link DataOutputStream#writeUTF(String)}
+ * <p>
+ * Usage: <code>JavaToolServer &lt;directory with classes&gt; &lt;port of executor&gt;</code>
+ */
+public class JavaToolServer {
+    /**
+     * Written by server after start, so failed start is distinguished from working server
+     */
+    public static final int READY = 0x52454459;
+
+    private static final long STACK_SIZE = 512L * 1024 * 1024;
+    private static final int UNCAUGHT_EXCEPTION_STATUS = 1;
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args[0]).toAbsolutePath();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            DataInputStream requests = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream responses = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            responses.writeInt(READY);
+            responses.flush();
+
+            while (true) {
+                String className;
+                try {
+                    className = requests.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                String input = requests.readUTF();
+                String output = requests.readUTF();
+                String[] arguments = new String[requests.readInt()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = requests.readUTF();
+                }
+
+                responses.writeInt(run(directory, className, input, output, arguments));
+                responses.flush();
+            }
+        }
+        // threads left running by executables after exit don't keep server alive
+        System.exit(0);
+    }
+
+    private static int run(final Path directory, final String className, final String input, final String output,
+                           final String[] arguments) throws IOException {
+        InputStream standardInput = System.in;
+        PrintStream standardOutput = System.out;
+        try (InputStream in = input.isEmpty() ? InputStream.nullInputStream() : new FileInputStream(input);
+             PrintStream out = new PrintStream(new BufferedOutputStream(output.isEmpty()
+                     ? OutputStream.nullOutputStream() : new FileOutputStream(output)), true)) {
+            System.setIn(in);
+            System.setOut(out);
+
+            IsolatedClassLoader loader = new IsolatedClassLoader(directory);
+            RunThreadGroup group = new RunThreadGroup(className, out);
+            // main thread of executable run by script has the same stack size
+            Thread thread = new Thread(group, () -> group.setMainStatus(invokeMain(group, loader, className,
+                    arguments)), "main", STACK_SIZE);
+            thread.setContextClassLoader(loader);
+            thread.start();
+            group.await();
+            out.flush();
+            return group.getStatus();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return UNCAUGHT_EXCEPTION_STATUS;
+        } finally {
+            System.setIn(standardInput);
+            System.setOut(standardOutput);
+        }
+    }
+
+    private static int invokeMain(final RunThreadGroup group, final ClassLoader loader, final String className,
+                                  final String[] arguments) {
+        try {
+            Method main = Class.forName(className, true, loader).getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) {
+                throw new NoSuchMethodException("main method of " + className + " is not static");
+            }
+            main.setAccessible(true);
+            main.invoke(null, (Object) arguments);
+            return 0;
+        } catch (InvocationTargetException | ExceptionInInitializerError | ExitHook.ExitError e) {
+            if (!group.exit(e)) {
+                System.err.print("Exception in thread \"main\" ");
+                (e instanceof InvocationTargetException ? e.getCause() : e).printStackTrace();
+            }
+            return UNCAUGHT_EXCEPTION_STATUS;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            e.printStackTrace();
+            return UNCAUGHT_EXCEPTION_STATUS;
+        }
+    }
+
+    /**
+     * Thread group of one run, threads started by executable belong to it. It finds when run ends and its exit
+     * status
+     */
+    private static class RunThreadGroup extends ThreadGroup {
+        private static final long JOIN_TIMEOUT_MILLIS = 10;
+
+        private final PrintStream output;
+        private volatile int mainStatus = UNCAUGHT_EXCEPTION_STATUS;
+        private volatile Integer exitStatus = null;
+
+        private RunThreadGroup(final String className, final PrintStream output) {
+            super(className);
+            this.output = output;
+        }
+
+        private void setMainStatus(final int status) {
+            mainStatus = status;
+        }
+
+        private int getStatus() {
+            return exitStatus == null ? mainStatus : exitStatus;
+        }
+
+        /**
+         * Ends run if throwable is caused by {@link ExitHook}
+         *
+         * @param throwable throwable thrown by thread of run
+         * @return <code>true</code> if it was exit or run has already exited, so throwable is not reported
+         */
+        private boolean exit(final Throwable throwable) {
+            for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ExitHook.ExitError) {
+                    synchronized (this) {
+                        if (exitStatus == null) {
+                            exitStatus = ((ExitHook.ExitError) cause).getStatus();
+                            // output written by other threads after exit is lost like after exit of JVM
+                            output.close();
+                            interrupt();
+                        }
+                    }
+                    return true;
+                }
+            }
+            return exitStatus != null;
+        }
+
+        @Override
+        public void uncaughtException(final Thread thread, final Throwable throwable) {
+            if (!exit(throwable)) {
+                System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+                throwable.printStackTrace();
+            }
+        }
+
+        /**
+         * Waits until all non-daemon threads of run have finished or some thread has called exit
+         *
+         * @throws InterruptedException if server was interrupted
+         */
+        private void await() throws InterruptedException {
+            while (exitStatus == null) {
+                Thread[] threads = new Thread[activeCount() + 1];
+                int count = enumerate(threads);
+                Thread running = null;
+                for (int i = 0; i < count && running == null; i++) {
+                    if (!threads[i].isDaemon()) {
+                        running = threads[i];
+                    }
+                }
+                if (running == null) {
+                    return;
+                }
+                running.join(JOIN_TIMEOUT_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Loads classes of executable from directory, other classes are loaded by platform class loader so classes of
+     * server are not visible. Calls of <code>System.exit</code> are redirected to {@link ExitHook} by patching
+     * method references in constant pool
+     */
+    private static class IsolatedClassLoader extends ClassLoader {
+        private static final String SYSTEM_CLASS = "java/lang/System";
+        private static final String EXIT_METHOD = "exit";
+        private static final String EXIT_DESCRIPTOR = "(I)V";
+        private static final String HOOK_CLASS = ExitHook.class.getName().replace('.', '/');
+
+        private final Path directory;
+
+        private IsolatedClassLoader(final Path directory) {
+            super("executable", ClassLoader.getPlatformClassLoader());
+            this.directory = directory;
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (name.equals(ExitHook.class.getName()) || name.equals(ExitHook.ExitError.class.getName())) {
+                return JavaToolServer.class.getClassLoader().loadClass(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        @Override
+        protected Class<?> findClass(final String name) throws ClassNotFoundException {
+            Path path = getPath(name + ".class");
+            if (path == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                byte[] content = redirectExit(Files.readAllBytes(path));
+                return defineClass(name, content, 0, content.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        @Override
+        protected URL findResource(final String name) {
+            Path path = getPath(name);
+            try {
+                return path == null ? null : path.toUri().toURL();
+            } catch (MalformedURLException e) {
+                return null;
+            }
+        }
+
+        private Path getPath(final String name) {
+            // executables are compiled to default package
+            if (name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+                return null;
+            }
+            Path path = directory.resolve(name);
+            return Files.isRegularFile(path) ? path : null;
+        }
+
+        private static byte[] redirectExit(final byte[] classFile) throws IOException {
+            ConstantPool constantPool = new ConstantPool(classFile);
+            List<Integer> exitReferences = new ArrayList<>();
+            for (int i = 1; i < constantPool.getCount(); i++) {
+                if (constantPool.getTag(i) != ConstantPool.METHOD_REFERENCE) {
+                    continue;
+                }
+                int classIndex = constantPool.getReference(i, 0);
+                int nameAndType = constantPool.getReference(i, 1);
+                if (constantPool.getUtf8(constantPool.getReference(classIndex, 0)).equals(SYSTEM_CLASS)
+                        && constantPool.getUtf8(constantPool.getReference(nameAndType, 0)).equals(EXIT_METHOD)
+                        && constantPool.getUtf8(constantPool.getReference(nameAndType, 1)).equals(EXIT_DESCRIPTOR)) {
+                    exitReferences.add(i);
+                }
+            }
+            if (exitReferences.isEmpty()) {
+                return classFile;
+            }
+
+            // name and class of hook are appended to constant pool, so indices of other entries are not changed
+            byte[] hookName = HOOK_CLASS.getBytes(StandardCharsets.UTF_8);
+            int hookNameIndex = constantPool.getCount();
+            int hookClassIndex = hookNameIndex + 1;
+            ByteBuffer result = ByteBuffer.allocate(classFile.length + 3 + hookName.length + 3);
+            result.put(classFile, 0, constantPool.getEnd());
+            result.putShort(8, (short) (constantPool.getCount() + 2));
+            for (int reference : exitReferences) {
+                result.putShort(constantPool.getOffset(reference) + 1, (short) hookClassIndex);
+            }
+            result.put((byte) ConstantPool.UTF8).putShort((short) hookName.length).put(hookName);
+            result.put((byte) ConstantPool.CLASS).putShort((short) hookNameIndex);
+            result.put(classFile, constantPool.getEnd(), classFile.length - constantPool.getEnd());
+            return result.array();
+        }
+    }
+}
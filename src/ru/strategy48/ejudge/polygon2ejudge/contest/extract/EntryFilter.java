@@ -0,0 +1,33 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes which archive entries are extracted
+ */
+public interface EntryFilter {
+    /**
+     * Filter accepting all entries
+     */
+    EntryFilter ALL = name -> true;
+
+    /**
+     * Checks if entry should be extracted
+     *
+     * @param name entry name relative to archive root, <code>/</code> is used as separator
+     * @return <code>true</code> if entry should be extracted
+     */
+    boolean accept(String name);
+
+    /**
+     * Called after accepted entry was extracted
+     *
+     * @param name entry name
+     * @param path path entry was extracted to
+     * @throws IOException if extracted entry couldn't be processed
+     */
+    default void extracted(final String name, final Path path) throws IOException {
+    }
+}
@@ -0,0 +1,56 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes result of archive extraction
+ */
+public class ExtractionResult {
+    private final int entries;
+    private final long extractedBytes;
+    private final int skippedEntries;
+    private final long skippedBytes;
+    private final long elapsedNanos;
+
+    public ExtractionResult(final int entries, final long extractedBytes, final long elapsedNanos) {
+        this(entries, extractedBytes, 0, 0, elapsedNanos);
+    }
+
+    public ExtractionResult(final int entries, final long extractedBytes, final int skippedEntries,
+                            final long skippedBytes, final long elapsedNanos) {
+        this.entries = entries;
+        this.extractedBytes = extractedBytes;
+        this.skippedEntries = skippedEntries;
+        this.skippedBytes = skippedBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getExtractedBytes() {
+        return extractedBytes;
+    }
+
+    /**
+     * Gets number of file entries rejected by {@link EntryFilter}
+     *
+     * @return number of skipped entries
+     */
+    public int getSkippedEntries() {
+        return skippedEntries;
+    }
+
+    /**
+     * Gets uncompressed size of file entries rejected by {@link EntryFilter}
+     *
+     * @return number of skipped bytes
+     */
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,248 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Extracts .zip archive saved on disk using several threads. Central directory is read once, then entries are
+ * distributed between workers (largest first, every entry goes to the least loaded worker). Every worker reads
+ * archive through its own channel with positional reads, so entries are inflated independently.
+ * CRC-32 and size of every entry are verified
+ */
+public class ParallelZipExtractor {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Extracts entries of archive accepted by filter
+     *
+     * @param archive   path to archive
+     * @param directory directory to extract archive to
+     * @param filter    filter of extracted entries, {@link EntryFilter#extracted(String, Path)} is called
+     *                  under filter lock
+     * @param threads   number of threads
+     * @return {@link ExtractionResult} describing extracted and skipped entries
+     * @throws IOException if archive couldn't be read, is malformed or files couldn't be written
+     */
+    public static ExtractionResult extract(final Path archive, final Path directory, final EntryFilter filter,
+                                           final int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+
+        long startTime = System.nanoTime();
+        Path root = directory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        List<ZipCentralDirectory.Entry> entries;
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            entries = ZipCentralDirectory.read(channel);
+        }
+
+        List<ZipCentralDirectory.Entry> accepted = new ArrayList<>();
+        int skippedEntries = 0;
+        long skippedBytes = 0;
+        long extractedBytes = 0;
+        for (ZipCentralDirectory.Entry entry : entries) {
+            if (filter.accept(entry.name)) {
+                accepted.add(entry);
+                extractedBytes += entry.size;
+            } else {
+                skippedEntries++;
+                skippedBytes += entry.size;
+            }
+        }
+
+        int workers = Math.max(1, Math.min(threads, accepted.size()));
+        List<List<ZipCentralDirectory.Entry>> assignments = assign(accepted, workers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> results = new ArrayList<>(workers);
+            for (List<ZipCentralDirectory.Entry> assignment : assignments) {
+                results.add(executor.submit(() -> {
+                    extractEntries(archive, root, assignment, filter);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("couldn't extract archive " + archive, e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while extracting archive " + archive, e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new ExtractionResult(accepted.size(), extractedBytes, skippedEntries, skippedBytes,
+                System.nanoTime() - startTime);
+    }
+
+    private static List<List<ZipCentralDirectory.Entry>> assign(final List<ZipCentralDirectory.Entry> entries,
+                                                                final int workers) {
+        List<ZipCentralDirectory.Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong((ZipCentralDirectory.Entry entry) -> entry.size).reversed());
+
+        List<List<ZipCentralDirectory.Entry>> assignments = new ArrayList<>(workers);
+        PriorityQueue<long[]> loads = new PriorityQueue<>(Comparator.comparingLong((long[] load) -> load[0]));
+        for (int i = 0; i < workers; i++) {
+            assignments.add(new ArrayList<>());
+            loads.add(new long[]{0, i});
+        }
+
+        for (ZipCentralDirectory.Entry entry : sorted) {
+            long[] load = loads.poll();
+            assignments.get((int) load[1]).add(entry);
+            load[0] += entry.size;
+            loads.add(load);
+        }
+
+        // Entries are extracted in archive order to keep reads mostly sequential
+        for (List<ZipCentralDirectory.Entry> assignment : assignments) {
+            assignment.sort(Comparator.comparingLong(entry -> entry.localHeaderOffset));
+        }
+        return assignments;
+    }
+
+    private static void extractEntries(final Path archive, final Path root,
+                                       final List<ZipCentralDirectory.Entry> entries, final EntryFilter filter)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Inflater inflater = new Inflater(true);
+        CRC32 crc = new CRC32();
+
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            for (ZipCentralDirectory.Entry entry : entries) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IOException("extraction of archive " + archive + " was interrupted");
+                }
+
+                Path target = StreamingZipExtractor.resolveEntry(root, entry.name);
+                Files.createDirectories(target.getParent());
+
+                long dataOffset = ZipCentralDirectory.getDataOffset(channel, entry);
+                InputStream input = new ChannelRangeInputStream(channel, dataOffset, entry.compressedSize);
+                if (entry.method == ZipCentralDirectory.DEFLATED) {
+                    inflater.reset();
+                    // Raw deflate data may need one extra byte after the end of input
+                    input = new InflaterInputStream(new PaddedInputStream(input), inflater, BUFFER_SIZE);
+                }
+
+                crc.reset();
+                long size = 0;
+                try (OutputStream output = Files.newOutputStream(target)) {
+                    int read;
+                    while ((read = input.read(buffer)) != -1) {
+                        output.write(buffer, 0, read);
+                        crc.update(buffer, 0, read);
+                        size += read;
+                    }
+                }
+
+                if (size != entry.size) {
+                    throw new ZipException("entry " + entry.name + " has size " + size + ", but " + entry.size
+                            + " was expected");
+                }
+                if (crc.getValue() != entry.crc) {
+                    throw new ZipException(String.format("entry %s has CRC-32 %08x, but %08x was expected",
+                            entry.name, crc.getValue(), entry.crc));
+                }
+
+                synchronized (filter) {
+                    filter.extracted(entry.name, target);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads range of file channel using positional reads
+     */
+    private static class ChannelRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private ChannelRangeInputStream(final FileChannel channel, final long position, final long length) {
+            this.channel = channel;
+            this.position = position;
+            this.end = position + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(length, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, toRead), position);
+            if (read == -1) {
+                throw new ZipException("unexpected end of archive");
+            }
+            position += read;
+            return read;
+        }
+    }
+
+    /**
+     * Appends single zero byte to stream, {@link Inflater} in raw mode may request it to finish inflating
+     */
+    private static class PaddedInputStream extends InputStream {
+        private final InputStream input;
+        private boolean padded = false;
+
+        private PaddedInputStream(final InputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            int read = input.read(bytes, offset, length);
+            if (read == -1 && !padded && length > 0) {
+                padded = true;
+                bytes[offset] = 0;
+                return 1;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.GenerationMethod;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.ProblemFile;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.Solution;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.ProblemConfig;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.XMLUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Accepts only package files referenced by <code>problem.xml</code>: resources, executables, checker, validators,
+ * interactor (with <code>files/CrossRun.jar</code>), main solution and manual tests. Statements, documents,
+ * compiled binaries and generated tests are skipped. Generated tests and answers may be kept if they are reused
+ * instead of being generated locally.
+ * <p>
+ * If archive is read sequentially and some entries precede <code>problem.xml</code>, entries which may be
+ * referenced by it are extracted provisionally and pruned as soon as <code>problem.xml</code> is extracted
+ */
+public class ProblemFilesFilter implements EntryFilter {
+    public static final String PROBLEM_XML = "problem.xml";
+    public static final String CROSS_RUN = "files/CrossRun.jar";
+
+    private static final List<String> PROVISIONAL_PREFIXES = List.of("files/", "solutions/", "tests/");
+
+    private final boolean includeTests;
+    private Set<String> required;
+    private final Map<String, Path> provisional = new LinkedHashMap<>();
+    private int prunedEntries = 0;
+    private long prunedBytes = 0;
+
+    /**
+     * Constructs filter which learns required files from <code>problem.xml</code> entry
+     */
+    public ProblemFilesFilter() {
+        this(false);
+    }
+
+    /**
+     * Constructs filter which learns required files from <code>problem.xml</code> entry
+     *
+     * @param includeTests <code>true</code> if inputs and answers of all tests are required
+     */
+    public ProblemFilesFilter(final boolean includeTests) {
+        this.includeTests = includeTests;
+        this.required = null;
+    }
+
+    /**
+     * Constructs filter for already parsed <code>problem.xml</code>
+     *
+     * @param config parsed <code>problem.xml</code>
+     */
+    public ProblemFilesFilter(final ProblemConfig config) {
+        this(config, false);
+    }
+
+    /**
+     * Constructs filter for already parsed <code>problem.xml</code>
+     *
+     * @param config       parsed <code>problem.xml</code>
+     * @param includeTests <code>true</code> if inputs and answers of all tests are required
+     */
+    public ProblemFilesFilter(final ProblemConfig config, final boolean includeTests) {
+        this.includeTests = includeTests;
+        this.required = getRequiredFiles(config, includeTests);
+    }
+
+    /**
+     * Gets package files used while preparing problem
+     *
+     * @param config parsed <code>problem.xml</code>
+     * @return {@link Set} of entry names
+     */
+    public static Set<String> getRequiredFiles(final ProblemConfig config) {
+        return getRequiredFiles(config, false);
+    }
+
+    /**
+     * Gets package files used while preparing problem
+     *
+     * @param config       parsed <code>problem.xml</code>
+     * @param includeTests <code>true</code> if inputs and answers of all tests are required
+     * @return {@link Set} of entry names
+     */
+    public static Set<String> getRequiredFiles(final ProblemConfig config, final boolean includeTests) {
+        Set<String> files = new HashSet<>();
+        files.add(PROBLEM_XML);
+
+        config.getResources().forEach(file -> files.add(entryName(file)));
+        config.getExecutables().forEach(file -> files.add(entryName(file)));
+        files.add(entryName(config.getChecker()));
+        if (config.getValidators() != null) {
+            config.getValidators().forEach(file -> files.add(entryName(file)));
+        }
+        if (config.getInteractor() != null) {
+            files.add(entryName(config.getInteractor()));
+            files.add(CROSS_RUN);
+        }
+        for (Solution solution : config.getSolutions()) {
+            if (solution.getTag().equals("main")) {
+                files.add(entryName(solution.getFile()));
+            }
+        }
+
+        for (int i = 0; i < config.getTests().size(); i++) {
+            if (includeTests || config.getTests().get(i).getMethod().equals(GenerationMethod.MANUAL)) {
+                files.add(String.format(config.getInputFilePattern(), i + 1));
+            }
+            if (includeTests) {
+                files.add(String.format(config.getOutputFilePattern(), i + 1));
+            }
+        }
+
+        return files;
+    }
+
+    @Override
+    public boolean accept(final String name) {
+        if (required != null) {
+            return required.contains(name);
+        }
+        return name.equals(PROBLEM_XML) || PROVISIONAL_PREFIXES.stream().anyMatch(name::startsWith);
+    }
+
+    @Override
+    public void extracted(final String name, final Path path) throws IOException {
+        if (required != null) {
+            return;
+        }
+
+        if (!name.equals(PROBLEM_XML)) {
+            provisional.put(name, path);
+            return;
+        }
+
+        try {
+            required = getRequiredFiles(XMLUtils.parseProblemXML(path), includeTests);
+        } catch (ContestException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        for (Map.Entry<String, Path> entry : provisional.entrySet()) {
+            if (!required.contains(entry.getKey())) {
+                prunedBytes += Files.size(entry.getValue());
+                prunedEntries++;
+                Files.delete(entry.getValue());
+            }
+        }
+        provisional.clear();
+    }
+
+    /**
+     * Gets number of entries extracted provisionally and then removed
+     *
+     * @return number of pruned entries
+     */
+    public int getPrunedEntries() {
+        return prunedEntries;
+    }
+
+    /**
+     * Gets size of entries extracted provisionally and then removed
+     *
+     * @return number of pruned bytes
+     */
+    public long getPrunedBytes() {
+        return prunedBytes;
+    }
+
+    private static String entryName(final ProblemFile file) {
+        return file.getPath().toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,108 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Extracts .zip archive from stream using local entry headers only, so extraction may overlap with download.
+ * Archives requiring central directory (for example, stored entries with data descriptors) cause
+ * {@link ZipException}, such archives should be saved to disk and extracted as files
+ */
+public class StreamingZipExtractor {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Extracts all entries of archive
+     *
+     * @param input     stream with archive, it is not closed
+     * @param directory directory to extract archive to
+     * @return {@link ExtractionResult} describing extracted entries
+     * @throws IOException if archive couldn't be read or files couldn't be written
+     */
+    public static ExtractionResult extract(final InputStream input, final Path directory) throws IOException {
+        return extract(input, directory, EntryFilter.ALL);
+    }
+
+    /**
+     * Extracts entries of archive accepted by filter, other entries are inflated only to be skipped
+     *
+     * @param input     stream with archive, it is not closed
+     * @param directory directory to extract archive to
+     * @param filter    filter of extracted entries
+     * @return {@link ExtractionResult} describing extracted and skipped entries
+     * @throws IOException if archive couldn't be read or files couldn't be written
+     */
+    public static ExtractionResult extract(final InputStream input, final Path directory, final EntryFilter filter)
+            throws IOException {
+        long startTime = System.nanoTime();
+        int entries = 0;
+        long extractedBytes = 0;
+        int skippedEntries = 0;
+        long skippedBytes = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        Path root = directory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        ZipInputStream zipInput = new ZipInputStream(input);
+        ZipEntry entry;
+        while ((entry = zipInput.getNextEntry()) != null) {
+            if (entry.isDirectory()) {
+                zipInput.closeEntry();
+                continue;
+            }
+
+            String name = entry.getName();
+            Path target = resolveEntry(root, name);
+            if (filter.accept(name)) {
+                Files.createDirectories(target.getParent());
+                try (OutputStream output = Files.newOutputStream(target)) {
+                    int read;
+                    while ((read = zipInput.read(buffer)) != -1) {
+                        output.write(buffer, 0, read);
+                        extractedBytes += read;
+                    }
+                }
+                entries++;
+                filter.extracted(name, target);
+            } else {
+                int read;
+                while ((read = zipInput.read(buffer)) != -1) {
+                    skippedBytes += read;
+                }
+                skippedEntries++;
+            }
+            zipInput.closeEntry();
+        }
+
+        if (entries + skippedEntries == 0) {
+            throw new ZipException("archive has no entries or is not a .zip archive");
+        }
+
+        return new ExtractionResult(entries, extractedBytes, skippedEntries, skippedBytes,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Resolves path of archive entry checking that it doesn't leave target directory
+     *
+     * @param root      normalized absolute target directory
+     * @param entryName name of entry
+     * @return path to extract entry to
+     * @throws ZipException if entry name points outside of target directory
+     */
+    static Path resolveEntry(final Path root, final String entryName) throws ZipException {
+        Path target = root.resolve(entryName).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new ZipException("entry " + entryName + " is outside of target directory");
+        }
+        return target;
+    }
+}
@@ -0,0 +1,207 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Reads central directory of .zip archive (including ZIP64 records) with positional reads
+ */
+class ZipCentralDirectory {
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    /**
+     * Describes file entry of central directory
+     */
+    static class Entry {
+        final String name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        private Entry(final String name, final int method, final long crc, final long compressedSize,
+                      final long size, final long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    private ZipCentralDirectory() {
+    }
+
+    /**
+     * Reads file entries of archive, directory entries are omitted
+     *
+     * @param channel channel of archive
+     * @return {@link List} of entries in central directory order
+     * @throws IOException if archive couldn't be read or is malformed
+     */
+    static List<Entry> read(final FileChannel channel) throws IOException {
+        long archiveSize = channel.size();
+        long endOffset = findEnd(channel, archiveSize);
+        ByteBuffer end = readFully(channel, endOffset, END_SIZE);
+
+        long count = end.getShort(10) & 0xFFFF;
+        long directorySize = end.getInt(12) & 0xFFFFFFFFL;
+        long directoryOffset = end.getInt(16) & 0xFFFFFFFFL;
+
+        if (count == ZIP64_MAGIC_COUNT || directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC) {
+            if (endOffset < ZIP64_LOCATOR_SIZE) {
+                throw new ZipException("ZIP64 end of central directory locator not found");
+            }
+            ByteBuffer locator = readFully(channel, endOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64End = readFully(channel, locator.getLong(8), ZIP64_END_SIZE);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("incorrect ZIP64 end of central directory record");
+                }
+                count = zip64End.getLong(32);
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+        }
+
+        if (directoryOffset + directorySize > archiveSize || directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("incorrect central directory location");
+        }
+
+        ByteBuffer directory = readFully(channel, directoryOffset, (int) directorySize);
+        List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 16));
+        for (long i = 0; i < count; i++) {
+            if (directory.remaining() < CENTRAL_HEADER_SIZE
+                    || directory.getInt(directory.position()) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("incorrect central directory header #" + (i + 1));
+            }
+
+            int start = directory.position();
+            int flags = directory.getShort(start + 8) & 0xFFFF;
+            int method = directory.getShort(start + 10) & 0xFFFF;
+            long crc = directory.getInt(start + 16) & 0xFFFFFFFFL;
+            long compressedSize = directory.getInt(start + 20) & 0xFFFFFFFFL;
+            long size = directory.getInt(start + 24) & 0xFFFFFFFFL;
+            int nameLength = directory.getShort(start + 28) & 0xFFFF;
+            int extraLength = directory.getShort(start + 30) & 0xFFFF;
+            int commentLength = directory.getShort(start + 32) & 0xFFFF;
+            long localHeaderOffset = directory.getInt(start + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLength];
+            directory.position(start + CENTRAL_HEADER_SIZE);
+            directory.get(nameBytes);
+            Charset charset = (flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+            String name = new String(nameBytes, charset);
+
+            // ZIP64 extra field contains only values which are set to 0xFFFFFFFF in the fixed header
+            int extraEnd = directory.position() + extraLength;
+            while (directory.position() + 4 <= extraEnd) {
+                int id = directory.getShort() & 0xFFFF;
+                int length = directory.getShort() & 0xFFFF;
+                int next = directory.position() + length;
+                if (id == ZIP64_EXTRA_ID) {
+                    if (size == ZIP64_MAGIC) {
+                        size = directory.getLong();
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = directory.getLong();
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = directory.getLong();
+                    }
+                }
+                directory.position(next);
+            }
+            directory.position(extraEnd + commentLength);
+
+            if (name.endsWith("/")) {
+                continue;
+            }
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                throw new ZipException("entry " + name + " is encrypted");
+            }
+            if (method != STORED && method != DEFLATED) {
+                throw new ZipException("entry " + name + " uses unsupported compression method " + method);
+            }
+            entries.add(new Entry(name, method, crc, compressedSize, size, localHeaderOffset));
+        }
+
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets offset of entry data, local header is read because its extra field may differ from central one
+     *
+     * @param channel channel of archive
+     * @param entry   entry
+     * @return offset of compressed data
+     * @throws IOException if archive couldn't be read or is malformed
+     */
+    static long getDataOffset(final FileChannel channel, final Entry entry) throws IOException {
+        ByteBuffer header = readFully(channel, entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("incorrect local header of entry " + entry.name);
+        }
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        return entry.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private static long findEnd(final FileChannel channel, final long archiveSize) throws IOException {
+        if (archiveSize < END_SIZE) {
+            throw new ZipException("archive is too small");
+        }
+
+        int tailSize = (int) Math.min(archiveSize, END_SIZE + MAX_COMMENT_SIZE);
+        long tailOffset = archiveSize - tailSize;
+        ByteBuffer tail = readFully(channel, tailOffset, tailSize);
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE && i + END_SIZE + (tail.getShort(i + 20) & 0xFFFF) == tailSize) {
+                return tailOffset + i;
+            }
+        }
+        throw new ZipException("end of central directory not found");
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int size)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new ZipException("unexpected end of archive");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.extract;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Extracts entries of .zip archive saved on disk using zip {@link FileSystem}, so single entries may be read
+ * without extracting whole archive
+ */
+public class ZipFileExtractor {
+    /**
+     * Extracts single entry of archive
+     *
+     * @param archive   path to archive
+     * @param name      entry name
+     * @param directory directory to extract entry to
+     * @return path to extracted entry
+     * @throws IOException if entry doesn't exist, archive couldn't be read or file couldn't be written
+     */
+    public static Path extractEntry(final Path archive, final String name, final Path directory)
+            throws IOException {
+        try (FileSystem zip = openArchive(archive)) {
+            Path root = directory.toAbsolutePath().normalize();
+            Path target = StreamingZipExtractor.resolveEntry(root, name);
+            Files.createDirectories(target.getParent());
+            Files.copy(zip.getPath(name), target, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        }
+    }
+
+    /**
+     * Gets names of all files in archive
+     *
+     * @param archive path to archive
+     * @return {@link Set} of entry names
+     * @throws IOException if archive couldn't be read
+     */
+    public static Set<String> listEntries(final Path archive) throws IOException {
+        Set<String> names = new HashSet<>();
+        try (FileSystem zip = openArchive(archive)) {
+            for (Path zipRoot : zip.getRootDirectories()) {
+                try (Stream<Path> walk = Files.walk(zipRoot)) {
+                    walk.filter(Files::isRegularFile).forEach(file -> names.add(file.toString().substring(1)));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Extracts entries of archive accepted by filter, other entries are not read
+     *
+     * @param archive   path to archive
+     * @param directory directory to extract archive to
+     * @param filter    filter of extracted entries
+     * @return {@link ExtractionResult} describing extracted and skipped entries
+     * @throws IOException if archive couldn't be read or files couldn't be written
+     */
+    public static ExtractionResult extract(final Path archive, final Path directory, final EntryFilter filter)
+            throws IOException {
+        long startTime = System.nanoTime();
+        int entries = 0;
+        long extractedBytes = 0;
+        int skippedEntries = 0;
+        long skippedBytes = 0;
+
+        Path root = directory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+
+        try (FileSystem zip = openArchive(archive)) {
+            List<Path> files = new ArrayList<>();
+            for (Path zipRoot : zip.getRootDirectories()) {
+                try (Stream<Path> walk = Files.walk(zipRoot)) {
+                    walk.filter(Files::isRegularFile).forEach(files::add);
+                }
+            }
+
+            for (Path file : files) {
+                String name = file.toString().substring(1);
+                long size = Files.size(file);
+                if (filter.accept(name)) {
+                    Path target = StreamingZipExtractor.resolveEntry(root, name);
+                    Files.createDirectories(target.getParent());
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                    entries++;
+                    extractedBytes += size;
+                    filter.extracted(name, target);
+                } else {
+                    skippedEntries++;
+                    skippedBytes += size;
+                }
+            }
+        }
+
+        return new ExtractionResult(entries, extractedBytes, skippedEntries, skippedBytes,
+                System.nanoTime() - startTime);
+    }
+
+    private static FileSystem openArchive(final Path archive) throws IOException {
+        return FileSystems.newFileSystem(URI.create("jar:" + archive.toAbsolutePath().toUri()), Map.of());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.strategy48.ejudge.polygon2ejudge.contest.objects;
+
+import java.util.Map;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes package that prepared problem directory was built from
+ */
+public class ProblemState {
+    private final int problemId;
+    private final int packageId;
+    private final int packageRevision;
+    private final int ejudgeProblemId;
+    private final String shortName;
+    private final long packageSize;
+    private final Map<String, String> toolchains;
+
+    /**
+     * Constructs problem state
+     *
+     * @param problemId       problem ID in Polygon
+     * @param packageId       ID of package problem was built from
+     * @param packageRevision problem revision of package problem was built from
+     * @param ejudgeProblemId problem ID in contest
+     * @param shortName       short problem name
+     * @param packageSize     size of package archive in bytes, <code>0</code> if unknown
+     * @param toolchains      toolchains sources were compiled with (for example C++ compiler profile of checker)
+     */
+    public ProblemState(final int problemId, final int packageId, final int packageRevision,
+                        final int ejudgeProblemId, final String shortName, final long packageSize,
+                        final Map<String, String> toolchains) {
+        this.problemId = problemId;
+        this.packageId = packageId;
+        this.packageRevision = packageRevision;
+        this.ejudgeProblemId = ejudgeProblemId;
+        this.shortName = shortName;
+        this.packageSize = packageSize;
+        this.toolchains = toolchains;
+    }
+
+    public int getProblemId() {
+        return problemId;
+    }
+
+    public int getPackageId() {
+        return packageId;
+    }
+
+    public int getPackageRevision() {
+        return packageRevision;
+    }
+
+    public int getEjudgeProblemId() {
+        return ejudgeProblemId;
+    }
+
+    public String getShortName() {
+        return shortName;
+    }
+
+    /**
+     * Gets size of package archive problem was built from
+     *
+     * @return size in bytes, <code>0</code> if unknown
+     */
+    public long getPackageSize() {
+        return packageSize;
+    }
+
+    /**
+     * Gets toolchains sources were compiled with
+     *
+     * @return {@link Map} from toolchain key (for example <code>cpp.checker</code>) to its description
+     */
+    public Map<String, String> getToolchains() {
+        return toolchains;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.NameValuePair;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Provides methods for signing Polygon API requests and checking their signatures.
+ * Signature is 6 random letters followed by SHA-512 of <code>rand/method?sorted parameters#secret</code>
+ */
+public class ApiSignature {
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final int RAND_LENGTH = 6;
+
+    /**
+     * Generates signature of API request
+     *
+     * @param random     source of random prefix
+     * @param method     API method name
+     * @param parameters request parameters except <code>apiSig</code>
+     * @param secret     API secret value
+     * @return value of <code>apiSig</code> parameter
+     */
+    public static String generate(final Random random, final String method, final List<NameValuePair> parameters,
+                                  final String secret) {
+        StringBuilder rand = new StringBuilder();
+        for (int i = 0; i < RAND_LENGTH; i++) {
+            rand.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return generate(rand.toString(), method, parameters, secret);
+    }
+
+    /**
+     * Generates signature of API request with given random prefix
+     *
+     * @param rand       random prefix of 6 characters
+     * @param method     API method name
+     * @param parameters request parameters except <code>apiSig</code>
+     * @param secret     API secret value
+     * @return value of <code>apiSig</code> parameter
+     */
+    public static String generate(final String rand, final String method, final List<NameValuePair> parameters,
+                                  final String secret) {
+        StringBuilder apiSig = new StringBuilder();
+        apiSig.append(rand).append('/').append(method);
+
+        List<NameValuePair> sortedParameters = new ArrayList<>(parameters);
+        sortedParameters.sort((p1, p2) -> {
+            if (p1.getName().equals(p2.getName())) {
+                return p1.getValue().compareTo(p2.getValue());
+            } else {
+                return p1.getName().compareTo(p2.getName());
+            }
+        });
+
+        for (int i = 0; i < sortedParameters.size(); i++) {
+            if (i == 0) {
+                apiSig.append('?');
+            } else {
+                apiSig.append('&');
+            }
+            apiSig.append(sortedParameters.get(i).getName()).append('=').append(sortedParameters.get(i).getValue());
+        }
+
+        apiSig.append('#').append(secret);
+
+        return rand + DigestUtils.sha512Hex(apiSig.toString());
+    }
+
+    /**
+     * Checks signature of API request
+     *
+     * @param apiSig     value of <code>apiSig</code> parameter
+     * @param method     API method name
+     * @param parameters request parameters except <code>apiSig</code>
+     * @param secret     API secret value
+     * @return <code>true</code> if signature is correct
+     */
+    public static boolean verify(final String apiSig, final String method, final List<NameValuePair> parameters,
+                                 final String secret) {
+        if (apiSig == null || apiSig.length() <= RAND_LENGTH) {
+            return false;
+        }
+
+        String expected = generate(apiSig.substring(0, RAND_LENGTH), method, parameters, secret);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+                apiSig.getBytes(StandardCharsets.US_ASCII));
+    }
+}
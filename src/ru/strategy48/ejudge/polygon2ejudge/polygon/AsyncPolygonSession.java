@@ -0,0 +1,204 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageDownload;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageType;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Problem;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Provides asynchronous variants of {@link PolygonSession} methods. Calls are executed on bounded pool, so
+ * metadata requests and downloads may be fanned out without exceeding given concurrency. Requests are signed,
+ * retried and rate limited by underlying session. Cancelling returned future aborts its in-flight HTTP exchange
+ * (cancellation is not propagated from dependent futures created by <code>thenApply</code> and similar methods)
+ */
+public class AsyncPolygonSession implements AutoCloseable {
+    private final PolygonSession session;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs asynchronous session
+     *
+     * @param session        underlying Polygon session, it is not closed by this session
+     * @param maxConcurrency maximal number of simultaneous API calls
+     */
+    public AsyncPolygonSession(final PolygonSession session, final int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive: " + maxConcurrency);
+        }
+
+        this.session = session;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "polygon-api-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops accepting new calls, already submitted calls are completed
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Gets all problems of contest asynchronously
+     *
+     * @param contestId contest ID
+     * @return future {@link List} of problems
+     */
+    public CompletableFuture<List<Problem>> getContestProblems(final int contestId) {
+        return submit(handle -> session.getContestProblems(contestId, handle));
+    }
+
+    /**
+     * Gets all packages of problem asynchronously
+     *
+     * @param problemId problem ID
+     * @return future {@link List} of packages
+     */
+    public CompletableFuture<List<Package>> getProblemPackages(final int problemId) {
+        return submit(handle -> session.getProblemPackages(problemId, handle));
+    }
+
+    /**
+     * Gets packages of several problems asynchronously, requests are executed concurrently
+     *
+     * @param problemIds problem IDs
+     * @return future {@link Map} from problem ID to its packages in order of given IDs
+     */
+    public CompletableFuture<Map<Integer, List<Package>>> getProblemsPackages(final List<Integer> problemIds) {
+        List<CompletableFuture<List<Package>>> futures = new ArrayList<>(problemIds.size());
+        for (int problemId : problemIds) {
+            futures.add(getProblemPackages(problemId));
+        }
+
+        CompletableFuture<Map<Integer, List<Package>>> result = CompletableFuture.allOf(
+                futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<Integer, List<Package>> packages = new LinkedHashMap<>();
+            for (int i = 0; i < problemIds.size(); i++) {
+                packages.put(problemIds.get(i), futures.get(i).join());
+            }
+            return packages;
+        });
+        result.whenComplete((packages, error) -> {
+            if (result.isCancelled()) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Downloads problem package asynchronously, see {@link PolygonSession#downloadProblemPackage(int, int, Path)}
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param path      directory to save archive
+     * @return future {@link PackageDownload} describing saved archive
+     */
+    public CompletableFuture<PackageDownload> downloadProblemPackage(final int problemId, final int packageId,
+                                                                     final Path path) {
+        return downloadProblemPackage(problemId, packageId, PackageType.STANDARD, path);
+    }
+
+    /**
+     * Downloads problem package of given type asynchronously, see
+     * {@link PolygonSession#downloadProblemPackage(int, int, PackageType, Path)}
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @param path      directory to save archive
+     * @return future {@link PackageDownload} describing saved archive
+     */
+    public CompletableFuture<PackageDownload> downloadProblemPackage(final int problemId, final int packageId,
+                                                                     final PackageType type, final Path path) {
+        return submit(handle -> session.downloadProblemPackage(problemId, packageId, type, path, handle));
+    }
+
+    /**
+     * Saves problem package provided as .zip archive to given path asynchronously
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param path      directory to save archive
+     * @return future {@link Path} to saved archive
+     */
+    public CompletableFuture<Path> saveProblemPackageToFile(final int problemId, final int packageId,
+                                                            final Path path) {
+        return submit(handle -> session.downloadProblemPackage(problemId, packageId, PackageType.STANDARD, path,
+                handle).getPath());
+    }
+
+    private <T> CompletableFuture<T> submit(final HandledCall<T> call) {
+        RequestHandle handle = new RequestHandle();
+        CancellableFuture<T> future = new CancellableFuture<>(handle);
+
+        try {
+            future.task = executor.submit(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(call.execute(handle));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Describes API call which may be cancelled through its handle
+     *
+     * @param <T> type of call result
+     */
+    @FunctionalInterface
+    private interface HandledCall<T> {
+        T execute(RequestHandle handle) throws Exception;
+    }
+
+    /**
+     * Future aborting HTTP exchange and interrupting waits (retry backoff, rate limiting) of its call on cancel
+     *
+     * @param <T> type of call result
+     */
+    private static class CancellableFuture<T> extends CompletableFuture<T> {
+        private final RequestHandle handle;
+        private volatile Future<?> task = null;
+
+        private CancellableFuture(final RequestHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                handle.cancel();
+                Future<?> currentTask = task;
+                if (currentTask != null) {
+                    currentTask.cancel(true);
+                }
+            }
+            return cancelled;
+        }
+    }
+}
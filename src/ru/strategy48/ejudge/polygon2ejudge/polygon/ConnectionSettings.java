@@ -0,0 +1,251 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes HTTP transport options used by {@link PolygonSession}
+ */
+public class ConnectionSettings {
+    public static final String DEFAULT_API_URL = "https://polygon.codeforces.com/api/";
+
+    private String apiUrl = DEFAULT_API_URL;
+    private int connectTimeout = 30_000;
+    private int readTimeout = 300_000;
+    private int connectionRequestTimeout = 0;
+    private int maxConnections = 16;
+    private int idleConnectionTimeout = 60_000;
+    private int maxAttempts = 5;
+    private long initialRetryDelay = 500;
+    private long maxRetryDelay = 30_000;
+    private double requestsPerSecond = 5;
+    private int requestsBurst = 10;
+
+    /**
+     * Gets base URL of Polygon API, method name is appended to it
+     *
+     * @return base URL ending with <code>/</code>
+     */
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    /**
+     * Sets base URL of Polygon API, for example URL of local stand-in server
+     *
+     * @param apiUrl absolute HTTP or HTTPS URL, trailing <code>/</code> is added if missing
+     */
+    public void setApiUrl(final String apiUrl) {
+        URI uri;
+        try {
+            uri = new URI(apiUrl);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Incorrect API URL: " + apiUrl, e);
+        }
+        if (uri.getHost() == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+            throw new IllegalArgumentException("API URL must be absolute HTTP or HTTPS URL: " + apiUrl);
+        }
+
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl : apiUrl + "/";
+    }
+
+    /**
+     * Gets timeout for establishing connection
+     *
+     * @return timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Sets timeout for establishing connection
+     *
+     * @param connectTimeout timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = requireNonNegative(connectTimeout, "Connect timeout");
+    }
+
+    /**
+     * Gets maximal period of inactivity between two consecutive data packets
+     *
+     * @return timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Sets maximal period of inactivity between two consecutive data packets
+     *
+     * @param readTimeout timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public void setReadTimeout(final int readTimeout) {
+        this.readTimeout = requireNonNegative(readTimeout, "Read timeout");
+    }
+
+    /**
+     * Gets timeout for waiting free connection in pool
+     *
+     * @return timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Sets timeout for waiting free connection in pool
+     *
+     * @param connectionRequestTimeout timeout in milliseconds, <code>0</code> means infinite timeout
+     */
+    public void setConnectionRequestTimeout(final int connectionRequestTimeout) {
+        this.connectionRequestTimeout = requireNonNegative(connectionRequestTimeout, "Connection request timeout");
+    }
+
+    /**
+     * Gets maximal number of simultaneously opened connections to Polygon
+     *
+     * @return connections pool size
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Sets maximal number of simultaneously opened connections to Polygon
+     *
+     * @param maxConnections connections pool size, must be positive
+     */
+    public void setMaxConnections(final int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("Number of connections must be positive: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Gets time after which idle kept-alive connection is closed
+     *
+     * @return timeout in milliseconds
+     */
+    public int getIdleConnectionTimeout() {
+        return idleConnectionTimeout;
+    }
+
+    /**
+     * Sets time after which idle kept-alive connection is closed
+     *
+     * @param idleConnectionTimeout timeout in milliseconds
+     */
+    public void setIdleConnectionTimeout(final int idleConnectionTimeout) {
+        this.idleConnectionTimeout = requireNonNegative(idleConnectionTimeout, "Idle connection timeout");
+    }
+
+    /**
+     * Gets maximal number of attempts for idempotent API calls
+     *
+     * @return number of attempts including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Sets maximal number of attempts for idempotent API calls
+     *
+     * @param maxAttempts number of attempts including the first one, must be positive
+     */
+    public void setMaxAttempts(final int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Number of attempts must be positive: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Gets upper bound of delay before the first retry, every next delay bound is doubled
+     *
+     * @return delay in milliseconds
+     */
+    public long getInitialRetryDelay() {
+        return initialRetryDelay;
+    }
+
+    /**
+     * Sets upper bound of delay before the first retry, every next delay bound is doubled
+     *
+     * @param initialRetryDelay delay in milliseconds
+     */
+    public void setInitialRetryDelay(final long initialRetryDelay) {
+        this.initialRetryDelay = initialRetryDelay;
+    }
+
+    /**
+     * Gets upper bound of any delay between retries
+     *
+     * @return delay in milliseconds
+     */
+    public long getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    /**
+     * Sets upper bound of any delay between retries
+     *
+     * @param maxRetryDelay delay in milliseconds
+     */
+    public void setMaxRetryDelay(final long maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    /**
+     * Gets sustained rate of requests to Polygon
+     *
+     * @return requests per second, <code>0</code> means unlimited rate
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Sets sustained rate of requests to Polygon
+     *
+     * @param requestsPerSecond requests per second, <code>0</code> means unlimited rate
+     */
+    public void setRequestsPerSecond(final double requestsPerSecond) {
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("Requests rate must be non-negative: " + requestsPerSecond);
+        }
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    /**
+     * Gets number of requests that can be sent at once without waiting for rate limiter
+     *
+     * @return burst size
+     */
+    public int getRequestsBurst() {
+        return requestsBurst;
+    }
+
+    /**
+     * Sets number of requests that can be sent at once without waiting for rate limiter
+     *
+     * @param requestsBurst burst size, must be positive
+     */
+    public void setRequestsBurst(final int requestsBurst) {
+        if (requestsBurst < 1) {
+            throw new IllegalArgumentException("Requests burst must be positive: " + requestsBurst);
+        }
+        this.requestsBurst = requestsBurst;
+    }
+
+    private static int requireNonNegative(final int value, final String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must be non-negative: " + value);
+        }
+        return value;
+    }
+}
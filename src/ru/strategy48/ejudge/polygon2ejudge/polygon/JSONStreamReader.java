@@ -0,0 +1,444 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import org.json.JSONException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Pull parser reading JSON tokens straight from stream, so large API responses are decoded without building
+ * intermediate {@link String} or JSON tree. Malformed input causes {@link JSONException}
+ */
+public class JSONStreamReader implements Closeable {
+    /**
+     * Describes kinds of JSON tokens
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader reader;
+    private final char[] buffer = new char[1 << 13];
+    private int position = 0;
+    private int limit = 0;
+
+    private int[] stack = new int[32];
+    private int stackSize = 1;
+
+    private Token peeked = null;
+    private final StringBuilder literal = new StringBuilder();
+    private final StringBuilder string = new StringBuilder();
+
+    /**
+     * Constructs reader of UTF-8 encoded JSON
+     *
+     * @param input stream with JSON
+     */
+    public JSONStreamReader(final InputStream input) {
+        this(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Constructs reader of JSON
+     *
+     * @param reader {@link Reader} with JSON
+     */
+    public JSONStreamReader(final Reader reader) {
+        this.reader = reader;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Gets kind of the next token without consuming it
+     *
+     * @return next {@link Token}
+     * @throws IOException if stream couldn't be read
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int c;
+        switch (stack[stackSize - 1]) {
+            case EMPTY_ARRAY, NONEMPTY_ARRAY -> {
+                boolean empty = stack[stackSize - 1] == EMPTY_ARRAY;
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (!empty) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                boolean empty = stack[stackSize - 1] == EMPTY_OBJECT;
+                stack[stackSize - 1] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (!empty) {
+                    expect(c, ',');
+                    c = nextNonWhitespace();
+                }
+                expect(c, '"');
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                expect(nextNonWhitespace(), ':');
+                c = nextNonWhitespace();
+            }
+            case EMPTY_DOCUMENT -> {
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                c = nextNonWhitespace();
+            }
+            default -> {
+                c = nextNonWhitespace();
+                if (c != -1) {
+                    throw syntaxError("unexpected data after end of document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+        }
+
+        return peeked = valueToken(c);
+    }
+
+    /**
+     * Checks if current object or array has more elements
+     *
+     * @return <code>true</code> if next token is not end of object or array
+     * @throws IOException if stream couldn't be read
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * Reads name of the next object field
+     *
+     * @return field name
+     * @throws IOException if stream couldn't be read
+     */
+    public String nextName() throws IOException {
+        consume(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Reads string value, numbers are returned as written in JSON
+     *
+     * @return string value
+     * @throws IOException if stream couldn't be read
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            peeked = null;
+            return literal.toString();
+        }
+        consume(Token.STRING);
+        return readString();
+    }
+
+    /**
+     * Reads integer value, integers written as strings are accepted too
+     *
+     * @return integer value
+     * @throws IOException if stream couldn't be read
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if ((int) value != value) {
+            throw syntaxError("integer is out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads long integer value, integers written as strings are accepted too
+     *
+     * @return long value
+     * @throws IOException if stream couldn't be read
+     */
+    public long nextLong() throws IOException {
+        CharSequence value;
+        if (peek() == Token.NUMBER) {
+            peeked = null;
+            value = literal;
+        } else {
+            consume(Token.STRING);
+            readString();
+            value = string;
+        }
+
+        try {
+            return Long.parseLong(value, 0, value.length(), 10);
+        } catch (NumberFormatException e) {
+            throw syntaxError("expected integer, but found " + value);
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        consume(Token.BOOLEAN);
+        return literal.charAt(0) == 't';
+    }
+
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+    }
+
+    /**
+     * Skips next value including all nested objects and arrays
+     *
+     * @throws IOException if stream couldn't be read
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    depth++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    depth--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    depth--;
+                }
+                case NAME, STRING -> {
+                    peeked = null;
+                    skipString();
+                }
+                case END_DOCUMENT -> throw syntaxError("unexpected end of document");
+                default -> peeked = null;
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Token valueToken(final int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+                readLiteral(c, "true");
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral(c, "false");
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral(c, "null");
+                return Token.NULL;
+            case -1:
+                throw syntaxError("unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void consume(final Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("expected " + expected + ", but found " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(final int context) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stack.length * 2];
+            System.arraycopy(stack, 0, newStack, 0, stack.length);
+            stack = newStack;
+        }
+        stack[stackSize++] = context;
+    }
+
+    private void readLiteral(final int first, final String expected) throws IOException {
+        literal.setLength(0);
+        literal.append((char) first);
+        for (int i = 1; i < expected.length(); i++) {
+            int c = read();
+            if (c != expected.charAt(i)) {
+                throw syntaxError("expected " + expected);
+            }
+            literal.append((char) c);
+        }
+    }
+
+    private void readNumber(final int first) throws IOException {
+        literal.setLength(0);
+        literal.append((char) first);
+        while (fill()) {
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                literal.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        StringBuilder result = string;
+        result.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            result.append(buffer, start, position - start);
+
+            int c = read();
+            if (c == '"') {
+                return result.toString();
+            } else if (c == '\\') {
+                result.append(readEscape());
+            } else if (c == -1) {
+                throw syntaxError("unterminated string");
+            } else {
+                result.append((char) c);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                readEscape();
+            } else if (c == -1) {
+                throw syntaxError("unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case '"', '\\', '/':
+                return (char) c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit == -1) {
+                        throw syntaxError("incorrect unicode escape sequence");
+                    }
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            default:
+                throw syntaxError("incorrect escape sequence");
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+        return c;
+    }
+
+    private void expect(final int actual, final char expected) {
+        if (actual != expected) {
+            throw syntaxError("expected '" + expected + "', but found "
+                    + (actual == -1 ? "end of document" : "'" + (char) actual + "'"));
+        }
+    }
+
+    private int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private JSONException syntaxError(final String message) {
+        return new JSONException("Malformed JSON: " + message);
+    }
+}
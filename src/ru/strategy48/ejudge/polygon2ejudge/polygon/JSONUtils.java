@@ -1,20 +1,444 @@
 package ru.strategy48.ejudge.polygon2ejudge.polygon;
 
+import org.json.JSONException;
 import org.json.JSONObject;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.ResponseException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.TooManyRequestsException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.*;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
-import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.PackageState;
-import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Problem;
+
+import java.io.IOException;
+import java.util.*;
 
 /**
  * @author Perveev Mike (perveev_m@mail.ru)
  * Provides methods for converting JSON to Polygon objects
  */
 public class JSONUtils {
-    public static Package packageFromJSON(final JSONObject json) {
-        return new Package(json.getInt("id"), json.getInt("revision"), json.getInt("creationTimeSeconds"), json.getEnum(PackageState.class, "state"), json.getString("comment"));
+    /**
+     * Decodes Polygon API response envelope (<code>status</code>, <code>comment</code> and <code>result</code>
+     * fields). Status is checked as soon as it is read, fields of failed response except comment are skipped
+     *
+     * @param reader  JSON reader positioned at the beginning of response
+     * @param decoder decoder of <code>result</code> field
+     * @param <T>     type of decoded result
+     * @return decoded result
+     * @throws IOException       if response couldn't be read
+     * @throws ResponseException if response status is not OK or response is incomplete
+     */
+    public static <T> T resultFromJSON(final JSONStreamReader reader, final ResultDecoder<T> decoder)
+            throws IOException, ResponseException {
+        String status = null;
+        String comment = null;
+        T result = null;
+        boolean hasResult = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("status")) {
+                status = reader.nextString();
+            } else if (name.equals("comment") && reader.peek() == JSONStreamReader.Token.STRING) {
+                comment = reader.nextString();
+            } else if (name.equals("result") && (status == null || status.equals("OK"))) {
+                result = decoder.decode(reader);
+                hasResult = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        reader.peek();
+
+        String json = "{\"status\":" + (status == null ? "null" : JSONObject.quote(status))
+                + ",\"comment\":" + (comment == null ? "null" : JSONObject.quote(comment)) + "}";
+        if (status == null) {
+            throw new ResponseException("Given JSON doesn't have status field", json);
+        }
+        if (!status.equals("OK")) {
+            if (comment != null && comment.toLowerCase().contains("too many")) {
+                throw new TooManyRequestsException("Given JSON status is " + status, json);
+            }
+            throw new ResponseException("Given JSON status is " + status, json);
+        }
+        if (!hasResult) {
+            throw new ResponseException("Given JSON doesn't have result field", json);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes JSON array of packages
+     *
+     * @param reader JSON reader positioned at the beginning of array
+     * @return {@link List} of packages
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<Package> packagesFromJSON(final JSONStreamReader reader) throws IOException {
+        List<Package> packages = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            packages.add(packageFromJSON(reader));
+        }
+        reader.endArray();
+        return packages;
+    }
+
+    /**
+     * Decodes JSON object mapping problem short names to problems
+     *
+     * @param reader JSON reader positioned at the beginning of object
+     * @return {@link List} of problems
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<Problem> problemsFromJSON(final JSONStreamReader reader) throws IOException {
+        List<Problem> problems = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            reader.nextName();
+            problems.add(problemFromJSON(reader));
+        }
+        reader.endObject();
+        return problems;
+    }
+
+    /**
+     * Decodes JSON array of problems
+     *
+     * @param reader JSON reader positioned at the beginning of array
+     * @return {@link List} of problems
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<Problem> problemListFromJSON(final JSONStreamReader reader) throws IOException {
+        List<Problem> problems = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            problems.add(problemFromJSON(reader));
+        }
+        reader.endArray();
+        return problems;
+    }
+
+    public static Package packageFromJSON(final JSONStreamReader reader) throws IOException {
+        Integer id = null;
+        Integer revision = null;
+        Integer creationTimeSeconds = null;
+        PackageState state = null;
+        String comment = null;
+        PackageType type = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextInt();
+                case "revision" -> revision = reader.nextInt();
+                case "creationTimeSeconds" -> creationTimeSeconds = reader.nextInt();
+                case "state" -> state = parseEnum(PackageState.class, reader.nextString());
+                case "comment" -> comment = reader.nextString();
+                case "type" -> type = PackageType.fromName(reader.nextString());
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Package(require(id, "id"), require(revision, "revision"),
+                require(creationTimeSeconds, "creationTimeSeconds"), require(state, "state"),
+                require(comment, "comment"), type);
+    }
+
+    public static Problem problemFromJSON(final JSONStreamReader reader) throws IOException {
+        Integer id = null;
+        String owner = null;
+        String name = null;
+        Boolean deleted = null;
+        Boolean favourite = null;
+        Integer revision = null;
+        Integer latestPackage = null;
+        Boolean modified = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id" -> id = reader.nextInt();
+                case "owner" -> owner = reader.nextString();
+                case "name" -> name = reader.nextString();
+                case "deleted" -> deleted = reader.nextBoolean();
+                case "favourite" -> favourite = reader.nextBoolean();
+                case "revision" -> revision = reader.nextInt();
+                case "latestPackage" -> latestPackage = reader.nextInt();
+                case "modified" -> modified = reader.nextBoolean();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Problem(require(id, "id"), require(owner, "owner"), require(name, "name"),
+                require(deleted, "deleted"), require(favourite, "favourite"), require(revision, "revision"),
+                require(latestPackage, "latestPackage"), require(modified, "modified"));
+    }
+
+    /**
+     * Decodes JSON object with lists of problem resource, source and auxiliary files
+     *
+     * @param reader JSON reader positioned at the beginning of object
+     * @return {@link List} of files of all types
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<PolygonFile> filesFromJSON(final JSONStreamReader reader) throws IOException {
+        List<PolygonFile> files = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            FileType type = switch (reader.nextName()) {
+                case "resourceFiles" -> FileType.RESOURCE;
+                case "sourceFiles" -> FileType.SOURCE;
+                case "auxFiles" -> FileType.AUX;
+                default -> null;
+            };
+            if (type == null) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                files.add(fileFromJSON(reader, type));
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return files;
+    }
+
+    /**
+     * Decodes JSON array of problem solutions
+     *
+     * @param reader JSON reader positioned at the beginning of array
+     * @return {@link List} of solution files
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<PolygonFile> solutionsFromJSON(final JSONStreamReader reader) throws IOException {
+        List<PolygonFile> solutions = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            solutions.add(fileFromJSON(reader, FileType.SOLUTION));
+        }
+        reader.endArray();
+        return solutions;
+    }
+
+    public static PolygonFile fileFromJSON(final JSONStreamReader reader, final FileType type) throws IOException {
+        String name = null;
+        Long modificationTimeSeconds = null;
+        Long length = null;
+        String sourceType = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "modificationTimeSeconds" -> modificationTimeSeconds = reader.nextLong();
+                case "length" -> length = reader.nextLong();
+                case "sourceType" -> sourceType = nextNullableString(reader);
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new PolygonFile(type, require(name, "name"),
+                require(modificationTimeSeconds, "modificationTimeSeconds"), require(length, "length"), sourceType);
+    }
+
+    /**
+     * Decodes JSON array of problem tests
+     *
+     * @param reader JSON reader positioned at the beginning of array
+     * @return {@link List} of tests
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<ProblemTest> testsFromJSON(final JSONStreamReader reader) throws IOException {
+        List<ProblemTest> tests = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            tests.add(testFromJSON(reader));
+        }
+        reader.endArray();
+        return tests;
+    }
+
+    public static ProblemTest testFromJSON(final JSONStreamReader reader) throws IOException {
+        Integer index = null;
+        Boolean manual = null;
+        String input = null;
+        String scriptLine = null;
+        String group = null;
+        Double points = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "index" -> index = reader.nextInt();
+                case "manual" -> manual = reader.nextBoolean();
+                case "input" -> input = nextNullableString(reader);
+                case "scriptLine" -> scriptLine = nextNullableString(reader);
+                case "group" -> group = nextNullableString(reader);
+                case "points" -> {
+                    String value = nextNullableString(reader);
+                    points = value == null ? null : parseDouble(value);
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ProblemTest(require(index, "index"), require(manual, "manual"), input, scriptLine, group, points);
+    }
+
+    public static ProblemInfo problemInfoFromJSON(final JSONStreamReader reader) throws IOException {
+        String inputFile = null;
+        String outputFile = null;
+        Boolean interactive = null;
+        Integer timeLimit = null;
+        Integer memoryLimit = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "inputFile" -> inputFile = reader.nextString();
+                case "outputFile" -> outputFile = reader.nextString();
+                case "interactive" -> interactive = reader.nextBoolean();
+                case "timeLimit" -> timeLimit = reader.nextInt();
+                case "memoryLimit" -> memoryLimit = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new ProblemInfo(require(inputFile, "inputFile"), require(outputFile, "outputFile"),
+                require(interactive, "interactive"), require(timeLimit, "timeLimit"),
+                require(memoryLimit, "memoryLimit"));
+    }
+
+    /**
+     * Decodes JSON array of test groups
+     *
+     * @param reader JSON reader positioned at the beginning of array
+     * @return {@link List} of test groups
+     * @throws IOException if JSON couldn't be read
+     */
+    public static List<TestGroup> testGroupsFromJSON(final JSONStreamReader reader) throws IOException {
+        List<TestGroup> groups = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String name = null;
+            String pointsPolicy = null;
+            String feedbackPolicy = null;
+            List<String> dependencies = new ArrayList<>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "name" -> name = reader.nextString();
+                    case "pointsPolicy" -> pointsPolicy = reader.nextString();
+                    case "feedbackPolicy" -> feedbackPolicy = reader.nextString();
+                    case "dependencies" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            dependencies.add(reader.nextString());
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            groups.add(new TestGroup(require(name, "name"), require(pointsPolicy, "pointsPolicy"),
+                    require(feedbackPolicy, "feedbackPolicy"), dependencies));
+        }
+        reader.endArray();
+        return groups;
+    }
+
+    /**
+     * Decodes JSON object mapping languages to problem statements, only statement names are kept
+     *
+     * @param reader JSON reader positioned at the beginning of object
+     * @return {@link Map} from language to problem name
+     * @throws IOException if JSON couldn't be read
+     */
+    public static Map<String, String> statementNamesFromJSON(final JSONStreamReader reader) throws IOException {
+        Map<String, String> names = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String language = reader.nextName();
+            String name = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("name")) {
+                    name = nextNullableString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            names.put(language, name);
+        }
+        reader.endObject();
+        return names;
+    }
+
+    /**
+     * Decodes string result, <code>null</code> is decoded as empty string
+     *
+     * @param reader JSON reader positioned at the string
+     * @return string value
+     * @throws IOException if JSON couldn't be read
+     */
+    public static String stringFromJSON(final JSONStreamReader reader) throws IOException {
+        String value = nextNullableString(reader);
+        return value == null ? "" : value;
+    }
+
+    private static String nextNullableString(final JSONStreamReader reader) throws IOException {
+        if (reader.peek() == JSONStreamReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static double parseDouble(final String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Incorrect number: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(final Class<E> type, final String value) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new JSONException("Unknown " + type.getSimpleName() + " value: " + value);
+        }
+    }
+
+    private static <T> T require(final T value, final String name) {
+        if (value == null) {
+            throw new JSONException("Field " + name + " not found");
+        }
+        return value;
     }
 
-    public static Problem problemFromJSON(final JSONObject json) {
-        return new Problem(json.getInt("id"), json.getString("owner"), json.getString("name"), json.getBoolean("deleted"), json.getBoolean("favourite"), json.getInt("revision"), json.getInt("latestPackage"), json.getBoolean("modified"));
+    /**
+     * Describes decoder of API response result
+     *
+     * @param <T> type of decoded result
+     */
+    @FunctionalInterface
+    public interface ResultDecoder<T> {
+        T decode(JSONStreamReader reader) throws IOException;
     }
 }
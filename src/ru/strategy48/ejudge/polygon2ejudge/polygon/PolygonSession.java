@@ -1,30 +1,45 @@
 package ru.strategy48.ejudge.polygon2ejudge.polygon;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.http.HttpEntity;
-import org.apache.http.NameValuePair;
+import org.apache.http.*;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.json.JSONException;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.ConnectionError;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.HttpStatusException;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.IncorrectParametersException;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.PolygonException;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.ResponseException;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.*;
 import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Package;
-import ru.strategy48.ejudge.polygon2ejudge.polygon.objects.Problem;
 
 import java.io.*;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @author Perveev Mike (perveev_m@mail.ru)
@@ -34,10 +49,23 @@ public class PolygonSession implements AutoCloseable {
     private final String key;
     private final String secret;
 
-    private final CloseableHttpClient client = HttpClients.createDefault();
+    private final CloseableHttpClient client;
     private final Random random = new Random();
-
-    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private final RetryPolicy retryPolicy;
+    private final RateLimiter rateLimiter;
+    private final AtomicLong retries = new AtomicLong();
+    private final int maxConnections;
+    private final String apiUrl;
+
+    private static final int DOWNLOAD_BUFFER_SIZE = 1 << 20;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-");
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of(
+            "contest.problems", "problem.packages", "problem.package", "problems.list", "problem.info",
+            "problem.files", "problem.solutions", "problem.viewFile", "problem.viewSolution", "problem.tests",
+            "problem.checker", "problem.validator", "problem.interactor", "problem.viewTestGroup",
+            "problem.statements", "problem.testInput");
+    private static final int STALE_CHECK_INTERVAL = 2_000;
 
     /**
      * Constructs Polygon session
@@ -46,8 +74,49 @@ public class PolygonSession implements AutoCloseable {
      * @param secret API secret value
      */
     public PolygonSession(final String key, final String secret) {
+        this(key, secret, new ConnectionSettings());
+    }
+
+    /**
+     * Constructs Polygon session using pooled keep-alive connections
+     *
+     * @param key                API key
+     * @param secret             API secret value
+     * @param connectionSettings HTTP transport settings
+     */
+    public PolygonSession(final String key, final String secret, final ConnectionSettings connectionSettings) {
         this.key = key;
         this.secret = secret;
+        this.maxConnections = connectionSettings.getMaxConnections();
+        this.apiUrl = connectionSettings.getApiUrl();
+        this.retryPolicy = new RetryPolicy(connectionSettings.getMaxAttempts(),
+                connectionSettings.getInitialRetryDelay(), connectionSettings.getMaxRetryDelay());
+        if (connectionSettings.getRequestsPerSecond() > 0) {
+            this.rateLimiter = new RateLimiter(connectionSettings.getRequestsPerSecond(),
+                    connectionSettings.getRequestsBurst());
+        } else {
+            this.rateLimiter = null;
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(connectionSettings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(connectionSettings.getMaxConnections());
+        connectionManager.setValidateAfterInactivity(STALE_CHECK_INTERVAL);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectionSettings.getConnectTimeout())
+                .setSocketTimeout(connectionSettings.getReadTimeout())
+                .setConnectionRequestTimeout(connectionSettings.getConnectionRequestTimeout())
+                .setContentCompressionEnabled(true)
+                .build();
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictExpiredConnections()
+                .evictIdleConnections(connectionSettings.getIdleConnectionTimeout(), TimeUnit.MILLISECONDS)
+                .build();
     }
 
     @Override
@@ -55,6 +124,41 @@ public class PolygonSession implements AutoCloseable {
         client.close();
     }
 
+    /**
+     * Gets size of HTTP connection pool, i.e. maximal number of simultaneous requests
+     *
+     * @return maximal number of connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Gets number of retried requests
+     *
+     * @return number of retries
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Gets number of requests delayed by rate limiter
+     *
+     * @return number of throttle waits
+     */
+    public long getThrottleWaitCount() {
+        return rateLimiter == null ? 0 : rateLimiter.getWaits();
+    }
+
+    /**
+     * Prints retries and rate limiting statistics to log
+     */
+    public void logStatistics() {
+        ConsoleLogger.logInfo("Polygon API: %d retries, %d throttle waits (%.2f s total)", getRetryCount(),
+                getThrottleWaitCount(), rateLimiter == null ? 0.0 : rateLimiter.getWaitedNanos() / 1e9);
+    }
+
     /**
      * Saves problem package provided as .zip archive to given path
      *
@@ -66,31 +170,234 @@ public class PolygonSession implements AutoCloseable {
      */
     public Path saveProblemPackageToFile(final int problemId, final int packageId, final Path path)
             throws PolygonException {
-        BufferedInputStream inputStream = getStreamResponse("problem.package", List.of(
-                new BasicNameValuePair("problemId", String.valueOf(problemId)),
-                new BasicNameValuePair("packageId", String.valueOf(packageId))));
+        return downloadProblemPackage(problemId, packageId, path).getPath();
+    }
+
+    /**
+     * Downloads problem package provided as .zip archive to given path. Archive is streamed to temporary
+     * <code>.part</code> file and then atomically renamed, SHA-256 checksum is computed in the same pass.
+     * Interrupted transfers (including ones left by previous runs) are resumed using HTTP Range requests
+     * if server supports them, otherwise download starts from the beginning. Partial file is discarded if server
+     * can't resume from its end (<code>416</code> status or other start of returned range).
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param path      directory to save archive
+     * @return {@link PackageDownload} describing saved archive
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public PackageDownload downloadProblemPackage(final int problemId, final int packageId, final Path path)
+            throws PolygonException {
+        return downloadProblemPackage(problemId, packageId, PackageType.STANDARD, path);
+    }
 
-        String fileName = "package-" + packageId + ".zip";
+    /**
+     * Downloads problem package of given type, see {@link #downloadProblemPackage(int, int, Path)}
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @param path      directory to save archive
+     * @return {@link PackageDownload} describing saved archive
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public PackageDownload downloadProblemPackage(final int problemId, final int packageId, final PackageType type,
+                                                  final Path path) throws PolygonException {
+        return downloadProblemPackage(problemId, packageId, type, path, null);
+    }
+
+    PackageDownload downloadProblemPackage(final int problemId, final int packageId, final PackageType type,
+                                           final Path path, final RequestHandle handle) throws PolygonException {
+        String method = "problem.package";
+        List<NameValuePair> parameters = getPackageParameters(problemId, packageId, type);
+
+        String fileName = "package-" + packageId + (type == PackageType.STANDARD ? "" : "-" + type.getName())
+                + ".zip";
         Path filePath = Paths.get(path.toString(), fileName);
+        Path partPath = Paths.get(path.toString(), fileName + ".part");
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        long downloaded = hashPartialFile(partPath, digest);
+        long transferred = 0;
+        long startTime = System.nanoTime();
+
+        for (int attempt = 1; ; attempt++) {
+            // Archives are not compressed by transport, otherwise Range offsets wouldn't match decoded bytes
+            List<Header> headers = new ArrayList<>();
+            headers.add(new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "identity"));
+            if (downloaded > 0) {
+                headers.add(new BasicHeader(HttpHeaders.RANGE, "bytes=" + downloaded + "-"));
+            }
 
-        try (BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(filePath.toFile()))) {
-            int c;
-            while ((c = inputStream.read()) != -1) {
-                outputStream.write(c);
+            try (CloseableHttpResponse response = executeAPIRequest(method, parameters, handle,
+                    headers.toArray(new Header[0]))) {
+                checkHttpStatus(method, response);
+                int status = response.getStatusLine().getStatusCode();
+                // .part file left by previous run may be complete, too long or belong to other content
+                if (downloaded > 0 && (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE
+                        || status == HttpStatus.SC_PARTIAL_CONTENT && getRangeStart(response) != downloaded)) {
+                    ConsoleLogger.logInfo("Partially downloaded package %d doesn't match server response, "
+                            + "downloading it from the start", packageId);
+                    try {
+                        Files.deleteIfExists(partPath);
+                    } catch (IOException e) {
+                        throw getPartialFileError(e);
+                    }
+                    downloaded = 0;
+                    digest.reset();
+                    continue;
+                }
+                if (status != HttpStatus.SC_OK && status != HttpStatus.SC_PARTIAL_CONTENT) {
+                    throw new ResponseException("HTTP status " + status,
+                            EntityUtils.toString(response.getEntity()));
+                }
+                if (downloaded > 0 && status != HttpStatus.SC_PARTIAL_CONTENT) {
+                    ConsoleLogger.logInfo("Server doesn't support resuming, downloading package %d from the start",
+                            packageId);
+                    downloaded = 0;
+                    digest.reset();
+                }
+
+                HttpEntity entity = response.getEntity();
+                long expectedSize = entity.getContentLength() < 0 ? -1 : downloaded + entity.getContentLength();
+
+                try (FileChannel output = openPartialFile(partPath, downloaded);
+                     ReadableByteChannel input = Channels.newChannel(entity.getContent())) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(DOWNLOAD_BUFFER_SIZE);
+                    while (input.read(buffer) != -1) {
+                        buffer.flip();
+                        ByteBuffer written = buffer.duplicate();
+                        try {
+                            while (buffer.hasRemaining()) {
+                                output.write(buffer);
+                            }
+                        } catch (IOException e) {
+                            throw getPartialFileError(e);
+                        }
+                        digest.update(written);
+                        downloaded += written.limit();
+                        transferred += written.limit();
+                        buffer.clear();
+                    }
+                }
+
+                if (expectedSize != -1 && downloaded != expectedSize) {
+                    throw new IOException("expected " + expectedSize + " bytes, but got " + downloaded);
+                }
+                break;
+            } catch (IOException | PolygonException e) {
+                PolygonException error = e instanceof PolygonException
+                        ? (PolygonException) e : new ResponseException(method, e);
+                if (handle != null) {
+                    handle.checkCancelled(method);
+                }
+                if (!retryPolicy.isRetryable(error)) {
+                    throw error;
+                }
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    throw new PolygonException("couldn't download package " + packageId + " after " + attempt
+                            + " attempts (" + e.getMessage() + ")", e);
+                }
+                ConsoleLogger.logError(e, "Downloading package %d interrupted after %d bytes, resuming (attempt %d)",
+                        packageId, downloaded, attempt + 1);
+                waitBeforeRetry(attempt);
             }
-        } catch (FileNotFoundException e) {
-            throw new PolygonException("couldn't create archive file (" + e.getMessage() + ")", e);
-        } catch (IOException e) {
-            throw new PolygonException("couldn't write or close archive file (" + e.getMessage() + ")", e);
         }
 
         try {
-            inputStream.close();
+            try {
+                Files.move(partPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partPath, filePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new PolygonException("couldn't rename archive file (" + e.getMessage() + ")", e);
+        }
+
+        return new PackageDownload(filePath, downloaded, transferred, Hex.encodeHexString(digest.digest()),
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Passes problem package to given consumer while it is being received, archive is not saved to disk.
+     * Failures before receiving of response body are retried, failures of consumer are not, because it may have
+     * already processed part of the archive
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param consumer  consumer of archive stream
+     * @param <T>       type of consumer result
+     * @return consumer result
+     * @throws PolygonException if something went wrong while working with API or consumer failed
+     */
+    public <T> T streamProblemPackage(final int problemId, final int packageId, final PackageConsumer<T> consumer)
+            throws PolygonException {
+        return streamProblemPackage(problemId, packageId, PackageType.STANDARD, consumer);
+    }
+
+    /**
+     * Passes problem package of given type to consumer while it is being received, see
+     * {@link #streamProblemPackage(int, int, PackageConsumer)}
+     *
+     * @param problemId problem ID
+     * @param packageId package ID
+     * @param type      package type
+     * @param consumer  consumer of archive stream
+     * @param <T>       type of consumer result
+     * @return consumer result
+     * @throws PolygonException if something went wrong while working with API or consumer failed
+     */
+    public <T> T streamProblemPackage(final int problemId, final int packageId, final PackageType type,
+                                      final PackageConsumer<T> consumer) throws PolygonException {
+        String method = "problem.package";
+        List<NameValuePair> parameters = getPackageParameters(problemId, packageId, type);
+
+        CloseableHttpResponse response = callWithRetries(method, null, () -> {
+            CloseableHttpResponse attemptResponse = executeAPIRequest(method, parameters, null,
+                    new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "identity"));
+            try {
+                checkHttpStatus(method, attemptResponse);
+                int status = attemptResponse.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new ResponseException("HTTP status " + status,
+                            EntityUtils.toString(attemptResponse.getEntity()));
+                }
+                return attemptResponse;
+            } catch (IOException | PolygonException e) {
+                closeQuietly(attemptResponse);
+                throw e instanceof PolygonException ? (PolygonException) e : new ResponseException(method, e);
+            }
+        });
+
+        try (response) {
+            HttpEntity entity = response.getEntity();
+            T result = consumer.consume(entity.getContent());
+            // Rest of the archive (central directory) is read to keep connection reusable
+            EntityUtils.consume(entity);
+            return result;
         } catch (IOException e) {
-            throw new PolygonException("couldn't close input stream with archive file (" + e.getMessage() + ")", e);
+            throw new ResponseException(method, e);
+        }
+    }
+
+    private long hashPartialFile(final Path partPath, final MessageDigest digest) throws PolygonException {
+        if (Files.notExists(partPath)) {
+            return 0;
         }
 
-        return filePath;
+        try (FileChannel input = FileChannel.open(partPath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DOWNLOAD_BUFFER_SIZE);
+            long size = 0;
+            while (input.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return size;
+        } catch (IOException e) {
+            throw new PolygonException("couldn't read partially downloaded archive file (" + e.getMessage() + ")", e);
+        }
     }
 
     /**
@@ -101,15 +408,12 @@ public class PolygonSession implements AutoCloseable {
      * @throws PolygonException if something went wrong while working with API
      */
     public List<Problem> getContestProblems(final int contestId) throws PolygonException {
-        JSONObject response = getJSONObjectResponse("contest.problems", List.of(
-                new BasicNameValuePair("contestId", String.valueOf(contestId))));
-
-        List<Problem> problems = new ArrayList<>();
-        for (String key : response.keySet()) {
-            problems.add(JSONUtils.problemFromJSON(response.getJSONObject(key)));
-        }
+        return getContestProblems(contestId, null);
+    }
 
-        return problems;
+    List<Problem> getContestProblems(final int contestId, final RequestHandle handle) throws PolygonException {
+        return getStreamedJSONResponse("contest.problems", List.of(
+                new BasicNameValuePair("contestId", String.valueOf(contestId))), JSONUtils::problemsFromJSON, handle);
     }
 
     /**
@@ -120,80 +424,323 @@ public class PolygonSession implements AutoCloseable {
      * @throws PolygonException if something went wrong while working with API
      */
     public List<Package> getProblemPackages(final int problemId) throws PolygonException {
-        JSONArray response = getJSONArrayResponse("problem.packages", List.of(
-                new BasicNameValuePair("problemId", String.valueOf(problemId))));
+        return getProblemPackages(problemId, null);
+    }
+
+    List<Package> getProblemPackages(final int problemId, final RequestHandle handle) throws PolygonException {
+        return getStreamedJSONResponse("problem.packages", List.of(
+                new BasicNameValuePair("problemId", String.valueOf(problemId))), JSONUtils::packagesFromJSON, handle);
+    }
+
+    /**
+     * Gets current state of problem
+     *
+     * @param problemId problem ID
+     * @return {@link Problem}
+     * @throws PolygonException if something went wrong while working with API or problem wasn't found
+     */
+    public Problem getProblem(final int problemId) throws PolygonException {
+        List<Problem> problems = getStreamedJSONResponse("problems.list", List.of(
+                new BasicNameValuePair("id", String.valueOf(problemId))), JSONUtils::problemListFromJSON, null);
+        return problems.stream().filter(problem -> problem.getId() == problemId).findFirst()
+                .orElseThrow(() -> new PolygonException("problem " + problemId + " wasn't found"));
+    }
 
-        List<Package> packages = new ArrayList<>();
-        for (int i = 0; i < response.length(); i++) {
-            packages.add(JSONUtils.packageFromJSON(response.getJSONObject(i)));
+    /**
+     * Gets general settings of problem
+     *
+     * @param problemId problem ID
+     * @return {@link ProblemInfo}
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public ProblemInfo getProblemInfo(final int problemId) throws PolygonException {
+        return getStreamedJSONResponse("problem.info", getProblemParameters(problemId),
+                JSONUtils::problemInfoFromJSON, null);
+    }
+
+    /**
+     * Gets {@link List} of problem resources, sources, auxiliary files and solutions without their content
+     *
+     * @param problemId problem ID
+     * @return {@link List} of files
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public List<PolygonFile> getProblemFiles(final int problemId) throws PolygonException {
+        List<PolygonFile> files = new ArrayList<>(getStreamedJSONResponse("problem.files",
+                getProblemParameters(problemId), JSONUtils::filesFromJSON, null));
+        files.addAll(getStreamedJSONResponse("problem.solutions", getProblemParameters(problemId),
+                JSONUtils::solutionsFromJSON, null));
+        return files;
+    }
+
+    /**
+     * Gets content of problem file
+     *
+     * @param problemId problem ID
+     * @param file      file returned by {@link #getProblemFiles(int)}
+     * @return file content
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public byte[] getProblemFileContent(final int problemId, final PolygonFile file) throws PolygonException {
+        List<NameValuePair> parameters = new ArrayList<>(getProblemParameters(problemId));
+        String method;
+        if (file.getType() == FileType.SOLUTION) {
+            method = "problem.viewSolution";
+        } else {
+            method = "problem.viewFile";
+            parameters.add(new BasicNameValuePair("type", file.getType().name().toLowerCase()));
         }
+        parameters.add(new BasicNameValuePair("name", file.getName()));
+        return getRawResponse(method, parameters);
+    }
 
-        return packages;
+    /**
+     * Gets input of manual test as it is stored in Polygon, without decoding it as JSON string
+     *
+     * @param problemId problem ID
+     * @param testset   testset name
+     * @param testIndex index of test
+     * @return test input
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public byte[] getProblemTestInput(final int problemId, final String testset, final int testIndex)
+            throws PolygonException {
+        return getRawResponse("problem.testInput", List.of(
+                new BasicNameValuePair("problemId", String.valueOf(problemId)),
+                new BasicNameValuePair("testset", testset),
+                new BasicNameValuePair("testIndex", String.valueOf(testIndex))));
     }
 
-    private JSONArray getJSONArrayResponse(final String method, final List<NameValuePair> parameters)
+    private byte[] getRawResponse(final String method, final List<NameValuePair> parameters)
             throws PolygonException {
-        HttpEntity response = getAPIResponse(method, parameters);
-        try {
-            JSONObject jsonResponse = new JSONObject(EntityUtils.toString(response));
-            checkJSONResponse(jsonResponse);
-            return jsonResponse.getJSONArray("result");
-        } catch (IOException e) {
-            throw new ResponseException(method, e);
-        }
+        return callWithRetries(method, null, () -> {
+            try (CloseableHttpResponse response = executeAPIRequest(method, parameters, null)) {
+                checkHttpStatus(method, response);
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new ResponseException("HTTP status " + status,
+                            EntityUtils.toString(response.getEntity()));
+                }
+                return EntityUtils.toByteArray(response.getEntity());
+            } catch (IOException e) {
+                throw new ResponseException(method, e);
+            }
+        });
+    }
+
+    /**
+     * Gets tests of problem testset
+     *
+     * @param problemId     problem ID
+     * @param testset       testset name
+     * @param includeInputs <code>true</code> if inputs of manual tests should be included
+     * @return {@link List} of tests
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public List<ProblemTest> getProblemTests(final int problemId, final String testset, final boolean includeInputs)
+            throws PolygonException {
+        return getStreamedJSONResponse("problem.tests", List.of(
+                new BasicNameValuePair("problemId", String.valueOf(problemId)),
+                new BasicNameValuePair("testset", testset),
+                new BasicNameValuePair("noInputs", String.valueOf(!includeInputs))), JSONUtils::testsFromJSON, null);
+    }
+
+    /**
+     * Gets test groups of problem testset
+     *
+     * @param problemId problem ID
+     * @param testset   testset name
+     * @return {@link List} of test groups
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public List<TestGroup> getProblemTestGroups(final int problemId, final String testset) throws PolygonException {
+        return getStreamedJSONResponse("problem.viewTestGroup", List.of(
+                new BasicNameValuePair("problemId", String.valueOf(problemId)),
+                new BasicNameValuePair("testset", testset)), JSONUtils::testGroupsFromJSON, null);
+    }
+
+    /**
+     * Gets problem names in all statement languages
+     *
+     * @param problemId problem ID
+     * @return {@link Map} from language to problem name
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public Map<String, String> getProblemStatementNames(final int problemId) throws PolygonException {
+        return getStreamedJSONResponse("problem.statements", getProblemParameters(problemId),
+                JSONUtils::statementNamesFromJSON, null);
+    }
+
+    /**
+     * Gets name of problem checker
+     *
+     * @param problemId problem ID
+     * @return checker file name
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public String getProblemChecker(final int problemId) throws PolygonException {
+        return getStreamedJSONResponse("problem.checker", getProblemParameters(problemId),
+                JSONUtils::stringFromJSON, null);
+    }
+
+    /**
+     * Gets name of problem validator
+     *
+     * @param problemId problem ID
+     * @return validator file name, empty if problem has no validator
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public String getProblemValidator(final int problemId) throws PolygonException {
+        return getStreamedJSONResponse("problem.validator", getProblemParameters(problemId),
+                JSONUtils::stringFromJSON, null);
+    }
+
+    /**
+     * Gets name of problem interactor
+     *
+     * @param problemId problem ID
+     * @return interactor file name, empty if problem is not interactive
+     * @throws PolygonException if something went wrong while working with API
+     */
+    public String getProblemInteractor(final int problemId) throws PolygonException {
+        return getStreamedJSONResponse("problem.interactor", getProblemParameters(problemId),
+                JSONUtils::stringFromJSON, null);
+    }
+
+    private static List<NameValuePair> getProblemParameters(final int problemId) {
+        return List.of(new BasicNameValuePair("problemId", String.valueOf(problemId)));
+    }
+
+    private static List<NameValuePair> getPackageParameters(final int problemId, final int packageId,
+                                                            final PackageType type) {
+        return List.of(
+                new BasicNameValuePair("problemId", String.valueOf(problemId)),
+                new BasicNameValuePair("packageId", String.valueOf(packageId)),
+                new BasicNameValuePair("type", type.getName()));
+    }
+
+    private <T> T getStreamedJSONResponse(final String method, final List<NameValuePair> parameters,
+                                          final JSONUtils.ResultDecoder<T> decoder, final RequestHandle handle)
+            throws PolygonException {
+        return callWithRetries(method, handle, () -> {
+            try (CloseableHttpResponse response = executeAPIRequest(method, parameters, handle);
+                 JSONStreamReader reader = new JSONStreamReader(response.getEntity().getContent())) {
+                checkHttpStatus(method, response);
+                return JSONUtils.resultFromJSON(reader, decoder);
+            } catch (IOException | JSONException e) {
+                throw new ResponseException(method, e);
+            }
+        });
     }
 
-    private JSONObject getJSONObjectResponse(final String method, final List<NameValuePair> parameters)
+    private <T> T callWithRetries(final String method, final RequestHandle handle, final APICall<T> call)
             throws PolygonException {
-        HttpEntity response = getAPIResponse(method, parameters);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.execute();
+            } catch (PolygonException e) {
+                if (handle != null) {
+                    handle.checkCancelled(method);
+                }
+                if (!IDEMPOTENT_METHODS.contains(method) || attempt >= retryPolicy.getMaxAttempts()
+                        || !retryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                ConsoleLogger.logError(e, "Polygon API method %s failed, retrying (attempt %d of %d)", method,
+                        attempt + 1, retryPolicy.getMaxAttempts());
+                waitBeforeRetry(attempt);
+            }
+        }
+    }
+
+    private static FileChannel openPartialFile(final Path partPath, final long size) throws PolygonException {
+        FileChannel output = null;
         try {
-            JSONObject jsonResponse = new JSONObject(EntityUtils.toString(response));
-            checkJSONResponse(jsonResponse);
-            return jsonResponse.getJSONObject("result");
+            output = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            output.truncate(size);
+            output.position(size);
+            return output;
         } catch (IOException e) {
-            throw new ResponseException(method, e);
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException closeError) {
+                    e.addSuppressed(closeError);
+                }
+            }
+            throw getPartialFileError(e);
         }
     }
 
-    private void checkJSONResponse(final JSONObject jsonResponse) throws PolygonException {
-        if (jsonResponse == null) {
-            throw new ResponseException("Given JSON response is null", "null");
-        }
-        if (!jsonResponse.keySet().contains("status")) {
-            throw new ResponseException("Given JSON doesn't have status field", jsonResponse.toString());
-        }
-        if (!jsonResponse.get("status").equals("OK")) {
-            throw new ResponseException("Given JSON status is " + jsonResponse.getString("status"), jsonResponse.toString());
-        }
-        if (!jsonResponse.keySet().contains("result")) {
-            throw new ResponseException("Given JSON doesn't have result field", jsonResponse.toString());
+    /**
+     * Creates error of writing partially downloaded archive. Local file system errors (for example full disk) are not
+     * fixed by downloading archive again, so they are not {@link ResponseException} and are not retried
+     *
+     * @param e error of file system
+     * @return {@link PolygonException} describing error
+     */
+    private static PolygonException getPartialFileError(final IOException e) {
+        return new PolygonException("couldn't write partially downloaded archive file (" + e.getMessage() + ")", e);
+    }
+
+    private static long getRangeStart(final HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+        if (header == null) {
+            return -1;
         }
+        Matcher matcher = CONTENT_RANGE_PATTERN.matcher(header.getValue().trim());
+        return matcher.lookingAt() ? Long.parseLong(matcher.group(1)) : -1;
     }
 
-    private BufferedInputStream getStreamResponse(final String method, final List<NameValuePair> parameters)
-            throws PolygonException {
-        HttpEntity response = getAPIResponse(method, parameters);
+    private void waitBeforeRetry(final int attempt) throws PolygonException {
+        retries.incrementAndGet();
         try {
-            return new BufferedInputStream(response.getContent());
-        } catch (IOException e) {
-            throw new ResponseException(method, e);
+            Thread.sleep(retryPolicy.getDelay(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PolygonException("interrupted while waiting before retry", e);
         }
     }
 
-    private HttpEntity getAPIResponse(final String method, final List<NameValuePair> parameters)
+    private void checkHttpStatus(final String method, final CloseableHttpResponse response)
+            throws HttpStatusException {
+        // Polygon reports API errors as JSON with 4xx statuses, they are checked by callers
+        int status = response.getStatusLine().getStatusCode();
+        if (status >= HttpStatus.SC_INTERNAL_SERVER_ERROR || status == TOO_MANY_REQUESTS) {
+            throw new HttpStatusException(method, status);
+        }
+    }
+
+    private CloseableHttpResponse executeAPIRequest(final String method, final List<NameValuePair> parameters,
+                                                    final RequestHandle handle, final Header... headers)
             throws PolygonException {
+        if (rateLimiter != null) {
+            try {
+                rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PolygonException("interrupted while waiting for request rate limit", e);
+            }
+        }
+
         List<NameValuePair> allParameters = new ArrayList<>();
 
         allParameters.add(new BasicNameValuePair("apiKey", key));
         allParameters.add(new BasicNameValuePair("time", String.valueOf(System.currentTimeMillis() / 1000)));
         allParameters.addAll(parameters);
-        allParameters.add(new BasicNameValuePair("apiSig", generateApiSig(method, allParameters)));
+        allParameters.add(new BasicNameValuePair("apiSig", ApiSignature.generate(random, method, allParameters, secret)));
 
-        return sendPost("https://polygon.codeforces.com/api/" + method, allParameters);
+        HttpPost post = createPost(apiUrl + method, allParameters, headers);
+        if (handle != null) {
+            handle.register(method, post);
+        }
+        return sendPost(post);
     }
 
-    private HttpEntity sendPost(final String url, final List<NameValuePair> parameters) throws PolygonException {
+    private HttpPost createPost(final String url, final List<NameValuePair> parameters, final Header... headers)
+            throws PolygonException {
         HttpPost post = new HttpPost(url);
+        post.setHeaders(headers);
 
         try {
             post.setEntity(new UrlEncodedFormEntity(parameters));
@@ -201,45 +748,36 @@ public class PolygonSession implements AutoCloseable {
             throw new IncorrectParametersException(parameters);
         }
 
+        return post;
+    }
+
+    private CloseableHttpResponse sendPost(final HttpPost post) throws PolygonException {
         try {
-            CloseableHttpResponse response = client.execute(post);
-            return response.getEntity();
+            return client.execute(post);
         } catch (IOException e) {
-            throw new ConnectionError(url, e);
+            throw new ConnectionError(post.getURI().toString(), e);
         }
     }
 
-    private String generateApiSig(final String method, final List<NameValuePair> parameters) {
-        StringBuilder rand = new StringBuilder();
-        StringBuilder apiSig = new StringBuilder();
-
-        for (int i = 0; i < 6; i++) {
-            char c = ALPHABET.charAt(random.nextInt(26));
-            rand.append(c);
-            apiSig.append(c);
-        }
-
-        apiSig.append('/').append(method);
-
-        parameters.sort((p1, p2) -> {
-            if (p1.getName().equals(p2.getName())) {
-                return p1.getValue().compareTo(p2.getValue());
-            } else {
-                return p1.getName().compareTo(p2.getName());
-            }
-        });
-
-        for (int i = 0; i < parameters.size(); i++) {
-            if (i == 0) {
-                apiSig.append('?');
-            } else {
-                apiSig.append('&');
-            }
-            apiSig.append(parameters.get(i).getName()).append('=').append(parameters.get(i).getValue());
+    private static void closeQuietly(final CloseableHttpResponse response) {
+        try {
+            response.close();
+        } catch (IOException ignored) {
         }
+    }
 
-        apiSig.append('#').append(secret);
+    /**
+     * Describes consumer of package archive stream
+     *
+     * @param <T> type of consumer result
+     */
+    @FunctionalInterface
+    public interface PackageConsumer<T> {
+        T consume(InputStream input) throws IOException;
+    }
 
-        return rand.toString() + DigestUtils.sha512Hex(apiSig.toString());
+    @FunctionalInterface
+    private interface APICall<T> {
+        T execute() throws PolygonException;
     }
 }
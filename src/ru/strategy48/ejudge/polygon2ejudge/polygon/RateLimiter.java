@@ -0,0 +1,71 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Token bucket limiting rate of requests shared by all threads using one {@link PolygonSession}
+ */
+public class RateLimiter {
+    private final double tokensPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    private long waits = 0;
+    private long waitedNanos = 0;
+
+    /**
+     * Constructs rate limiter with full bucket
+     *
+     * @param requestsPerSecond sustained rate of requests
+     * @param burst             maximal number of requests that can be sent without waiting
+     */
+    public RateLimiter(final double requestsPerSecond, final int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit must be positive: " + requestsPerSecond + "/s, burst "
+                    + burst);
+        }
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one token waiting until it is available. Tokens are reserved in arrival order, so waiting threads
+     * don't compete for the same token
+     *
+     * @return time spent on waiting in nanoseconds
+     * @throws InterruptedException if thread was interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+
+            waitNanos = (long) Math.ceil(-tokens / tokensPerNano);
+            waits++;
+            waitedNanos += waitNanos;
+        }
+
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return waitNanos;
+    }
+
+    public synchronized long getWaits() {
+        return waits;
+    }
+
+    public synchronized long getWaitedNanos() {
+        return waitedNanos;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.RequestCancelledException;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Tracks HTTP exchange performed on behalf of one API call, so the call can be cancelled from another thread
+ */
+class RequestHandle {
+    private HttpUriRequest current = null;
+    private boolean cancelled = false;
+
+    /**
+     * Registers request that is going to be executed
+     *
+     * @param method  API method name
+     * @param request HTTP request
+     * @throws RequestCancelledException if call was already cancelled
+     */
+    synchronized void register(final String method, final HttpUriRequest request) throws RequestCancelledException {
+        checkCancelled(method);
+        current = request;
+    }
+
+    /**
+     * Throws exception if call was cancelled
+     *
+     * @param method API method name
+     * @throws RequestCancelledException if call was cancelled
+     */
+    synchronized void checkCancelled(final String method) throws RequestCancelledException {
+        if (cancelled) {
+            throw new RequestCancelledException(method);
+        }
+    }
+
+    /**
+     * Cancels call aborting its in-flight HTTP exchange
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        if (current != null) {
+            current.abort();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon;
+
+import ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions.*;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes which failed Polygon API calls are retried and how long to wait before retrying.
+ * Delays grow exponentially and are randomized ("full jitter"), so concurrent workers don't retry simultaneously
+ */
+public class RetryPolicy {
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+
+    /**
+     * Constructs retry policy
+     *
+     * @param maxAttempts  maximal number of attempts including the first one
+     * @param initialDelay upper bound of delay before the first retry in milliseconds
+     * @param maxDelay     upper bound of any delay in milliseconds
+     */
+    public RetryPolicy(final int maxAttempts, final long initialDelay, final long maxDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Number of attempts must be positive: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets randomized delay before next attempt
+     *
+     * @param attempt number of failed attempt (starting from 1)
+     * @return delay in milliseconds
+     */
+    public long getDelay(final int attempt) {
+        long bound = initialDelay << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > maxDelay) {
+            bound = maxDelay;
+        }
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Checks if given error is transient and request may succeed if repeated
+     *
+     * @param e error happened while calling API method
+     * @return <code>true</code> if request should be retried
+     */
+    public boolean isRetryable(final PolygonException e) {
+        if (e instanceof ConnectionError || e instanceof TooManyRequestsException) {
+            return true;
+        }
+        if (e instanceof HttpStatusException) {
+            int status = ((HttpStatusException) e).getStatusCode();
+            return status >= 500 || status == TOO_MANY_REQUESTS;
+        }
+        return e instanceof ResponseException && e.getCause() instanceof IOException;
+    }
+}
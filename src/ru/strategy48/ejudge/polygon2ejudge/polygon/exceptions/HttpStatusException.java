@@ -0,0 +1,18 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes {@link Exception} thrown if Polygon responded with unexpected HTTP status
+ */
+public class HttpStatusException extends ResponseException {
+    private final int statusCode;
+
+    public HttpStatusException(final String method, final int statusCode) {
+        super(method + " (HTTP status " + statusCode + ")");
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes {@link Exception} thrown if API request was cancelled by caller
+ */
+public class RequestCancelledException extends PolygonException {
+    public RequestCancelledException(final String method) {
+        super("request to API method " + method + " was cancelled");
+    }
+}
@@ -0,0 +1,11 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.exceptions;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes {@link Exception} thrown if Polygon rejected request because of exceeded request quota
+ */
+public class TooManyRequestsException extends ResponseException {
+    public TooManyRequestsException(final String message, final String json) {
+        super(message, json);
+    }
+}
@@ -0,0 +1,675 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.fake;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.cli.*;
+import org.apache.http.NameValuePair;
+import org.apache.http.message.BasicNameValuePair;
+import org.json.JSONObject;
+import ru.strategy48.ejudge.polygon2ejudge.ConsoleLogger;
+import ru.strategy48.ejudge.polygon2ejudge.contest.exceptions.ContestException;
+import ru.strategy48.ejudge.polygon2ejudge.contest.objects.*;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.ProblemConfig;
+import ru.strategy48.ejudge.polygon2ejudge.contest.xml.XMLUtils;
+import ru.strategy48.ejudge.polygon2ejudge.polygon.ApiSignature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Local stand-in for Polygon API used for offline testing and benchmarking. Serves <code>contest.problems</code>,
+ * <code>problem.packages</code> and <code>problem.package</code> (with HTTP Range support) from fixture directory
+ * and checks <code>apiKey</code> and <code>apiSig</code> of every request. Latency, bandwidth cap, HTTP errors
+ * and dropped downloads may be injected.
+ * <p>
+ * Fixture directory layout: <code>&lt;contest ID&gt;/&lt;problem name&gt;/&lt;package ID&gt;.zip</code>, the archive
+ * is served for every package type unless <code>&lt;package ID&gt;-&lt;type&gt;.zip</code> is present for
+ * requested type.
+ * Problems of contest get short names A, B, C, ... in order of their names, problem IDs are assigned
+ * sequentially in order of contest IDs and problem names, package revision is equal to package ID.
+ * Current problem state (<code>problem.info</code>, <code>problem.files</code>, <code>problem.tests</code> and
+ * other per-file methods) is taken from <code>problem.xml</code> of the latest package, file modification times
+ * are times of archive entries
+ */
+public class FakePolygonServer implements AutoCloseable {
+    private static final Pattern PACKAGE_FILE = Pattern.compile("(\\d+)\\.zip");
+    private static final Pattern PACKAGE_TYPE_FILE = Pattern.compile("(\\d+)-(standard|linux|windows)\\.zip");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final String OWNER = "fake";
+
+    private final String key;
+    private final String secret;
+    private final Map<Integer, List<FakeProblem>> contests = new TreeMap<>();
+    private final Map<Integer, FakeProblem> problems = new HashMap<>();
+
+    private volatile long latency = 0;
+    private volatile long bandwidth = 0;
+    private volatile double errorRate = 0;
+    private volatile double dropRate = 0;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+
+    private HttpServer server = null;
+    private ExecutorService executor = null;
+
+    /**
+     * Constructs server and loads fixtures
+     *
+     * @param fixtureDirectory directory with fixture packages
+     * @param key              API key accepted by server
+     * @param secret           API secret value accepted by server
+     * @throws IOException if fixture directory couldn't be read
+     */
+    public FakePolygonServer(final Path fixtureDirectory, final String key, final String secret) throws IOException {
+        this.key = key;
+        this.secret = secret;
+
+        int nextProblemId = 1;
+        for (Path contestDirectory : listDirectory(fixtureDirectory)) {
+            if (!Files.isDirectory(contestDirectory)
+                    || !contestDirectory.getFileName().toString().matches("\\d+")) {
+                continue;
+            }
+
+            List<FakeProblem> contestProblems = new ArrayList<>();
+            for (Path problemDirectory : listDirectory(contestDirectory)) {
+                if (!Files.isDirectory(problemDirectory)) {
+                    continue;
+                }
+
+                FakeProblem problem = new FakeProblem(nextProblemId++, problemDirectory.getFileName().toString());
+                for (Path packageFile : listDirectory(problemDirectory)) {
+                    Matcher matcher = PACKAGE_FILE.matcher(packageFile.getFileName().toString());
+                    if (matcher.matches()) {
+                        problem.packages.put(Integer.parseInt(matcher.group(1)), packageFile);
+                    }
+                    matcher = PACKAGE_TYPE_FILE.matcher(packageFile.getFileName().toString());
+                    if (matcher.matches()) {
+                        problem.typedPackages.put(matcher.group(1) + "-" + matcher.group(2), packageFile);
+                    }
+                }
+
+                contestProblems.add(problem);
+                problems.put(problem.id, problem);
+            }
+
+            contests.put(Integer.parseInt(contestDirectory.getFileName().toString()), contestProblems);
+        }
+    }
+
+    /**
+     * Starts server on loopback interface
+     *
+     * @param port    port to listen, <code>0</code> means any free port
+     * @param threads number of request handling threads
+     * @return base API URL of started server
+     * @throws IOException if server couldn't be started
+     */
+    public String start(final int port, final int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+        return getApiUrl();
+    }
+
+    /**
+     * Gets base API URL which may be passed to
+     * {@link ru.strategy48.ejudge.polygon2ejudge.polygon.ConnectionSettings#setApiUrl(String)}
+     *
+     * @return base API URL
+     */
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/";
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets delay added before handling every request
+     *
+     * @param latency delay in milliseconds
+     */
+    public void setLatency(final long latency) {
+        this.latency = requireNonNegative(latency, "Latency");
+    }
+
+    /**
+     * Sets package download speed limit, every download is limited separately
+     *
+     * @param bandwidth limit in bytes per second, <code>0</code> means unlimited
+     */
+    public void setBandwidth(final long bandwidth) {
+        this.bandwidth = requireNonNegative(bandwidth, "Bandwidth");
+    }
+
+    /**
+     * Sets probability of answering request with HTTP 503 error
+     *
+     * @param errorRate probability from <code>0</code> to <code>1</code>
+     */
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = requireProbability(errorRate, "Error rate");
+    }
+
+    /**
+     * Sets probability of closing connection in the middle of package download
+     *
+     * @param dropRate probability from <code>0</code> to <code>1</code>
+     */
+    public void setDropRate(final double dropRate) {
+        this.dropRate = requireProbability(dropRate, "Drop rate");
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String method = exchange.getRequestURI().getPath().substring("/api/".length());
+            List<NameValuePair> parameters = readParameters(exchange);
+
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                sendBytes(exchange, 503, "text/plain", "Service Unavailable".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            String error = checkSignature(method, parameters);
+            if (error != null) {
+                sendFailure(exchange, error);
+                return;
+            }
+
+            Map<String, String> values = new HashMap<>();
+            parameters.forEach(parameter -> values.put(parameter.getName(), parameter.getValue()));
+
+            switch (method) {
+                case "contest.problems" -> handleContestProblems(exchange, values);
+                case "problem.packages" -> handleProblemPackages(exchange, values);
+                case "problem.package" -> handleProblemPackage(exchange, values);
+                case "problems.list" -> handleProblemsList(exchange, values);
+                case "problem.info", "problem.files", "problem.solutions", "problem.viewFile",
+                        "problem.viewSolution", "problem.tests", "problem.checker", "problem.validator",
+                        "problem.interactor", "problem.viewTestGroup", "problem.statements", "problem.testInput" ->
+                        handleProblemState(exchange, method, values);
+                default -> sendFailure(exchange, "Unknown method " + method);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            ConsoleLogger.logError(e, "Fake Polygon server couldn't handle request");
+        }
+    }
+
+    private void handleContestProblems(final HttpExchange exchange, final Map<String, String> values)
+            throws IOException {
+        List<FakeProblem> contestProblems = contests.get(parseId(values.get("contestId")));
+        if (contestProblems == null) {
+            sendFailure(exchange, "contestId: Contest not found");
+            return;
+        }
+
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < contestProblems.size(); i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            result.append(JSONObject.quote(String.valueOf((char) ('A' + i)))).append(':')
+                    .append(problemToJSON(contestProblems.get(i)));
+        }
+        sendResult(exchange, result.append('}').toString());
+    }
+
+    private void handleProblemPackages(final HttpExchange exchange, final Map<String, String> values)
+            throws IOException {
+        FakeProblem problem = problems.get(parseId(values.get("problemId")));
+        if (problem == null) {
+            sendFailure(exchange, "problemId: Problem not found");
+            return;
+        }
+
+        StringBuilder result = new StringBuilder("[");
+        for (Map.Entry<Integer, Path> entry : problem.packages.entrySet()) {
+            if (result.length() > 1) {
+                result.append(',');
+            }
+            result.append(String.format("{\"id\":%d,\"revision\":%d,\"creationTimeSeconds\":%d,\"state\":\"READY\","
+                            + "\"comment\":\"\",\"type\":\"linux\"}", entry.getKey(), entry.getKey(),
+                    Files.getLastModifiedTime(entry.getValue()).toMillis() / 1000));
+        }
+        sendResult(exchange, result.append(']').toString());
+    }
+
+    private void handleProblemPackage(final HttpExchange exchange, final Map<String, String> values)
+            throws IOException, InterruptedException {
+        FakeProblem problem = problems.get(parseId(values.get("problemId")));
+        Path packageFile = problem == null ? null : problem.packages.get(parseId(values.get("packageId")));
+        if (packageFile == null) {
+            sendFailure(exchange, "packageId: Package not found");
+            return;
+        }
+        String type = values.getOrDefault("type", "standard");
+        if (!type.matches("standard|linux|windows")) {
+            sendFailure(exchange, "type: Unknown package type");
+            return;
+        }
+        packageFile = problem.typedPackages.getOrDefault(values.get("packageId") + "-" + type, packageFile);
+
+        try (RandomAccessFile file = new RandomAccessFile(packageFile.toFile(), "r")) {
+            long size = file.length();
+            long start = 0;
+            long end = size - 1;
+            int status = 200;
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                Matcher matcher = RANGE.matcher(range);
+                if (matcher.matches()) {
+                    start = Long.parseLong(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, Long.parseLong(matcher.group(2)));
+                    }
+                    if (start > end) {
+                        exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+                        sendBytes(exchange, 416, "text/plain", new byte[0]);
+                        return;
+                    }
+                    status = 206;
+                    exchange.getResponseHeaders().set("Content-Range",
+                            "bytes " + start + "-" + end + "/" + size);
+                }
+            }
+
+            long length = end - start + 1;
+            long dropAfter = dropRate > 0 && ThreadLocalRandom.current().nextDouble() < dropRate
+                    ? length / 2 : Long.MAX_VALUE;
+
+            exchange.getResponseHeaders().set("Content-Type", "application/zip");
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            exchange.sendResponseHeaders(status, length);
+
+            OutputStream output = exchange.getResponseBody();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            long written = 0;
+            long startTime = System.nanoTime();
+            file.seek(start);
+            while (written < length) {
+                if (written >= dropAfter) {
+                    injectedErrors.incrementAndGet();
+                    return;
+                }
+
+                int read = file.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+                output.write(buffer, 0, read);
+                written += read;
+                sentBytes.addAndGet(read);
+
+                if (bandwidth > 0) {
+                    long expectedNanos = written * 1_000_000_000L / bandwidth;
+                    long sleepNanos = expectedNanos - (System.nanoTime() - startTime);
+                    if (sleepNanos > 0) {
+                        Thread.sleep(sleepNanos / 1_000_000, (int) (sleepNanos % 1_000_000));
+                    }
+                }
+            }
+        }
+    }
+
+    private void handleProblemsList(final HttpExchange exchange, final Map<String, String> values)
+            throws IOException {
+        FakeProblem problem = problems.get(parseId(values.get("id")));
+        sendResult(exchange, problem == null ? "[]" : "[" + problemToJSON(problem) + "]");
+    }
+
+    private void handleProblemState(final HttpExchange exchange, final String method,
+                                    final Map<String, String> values) throws IOException {
+        FakeProblem problem = problems.get(parseId(values.get("problemId")));
+        if (problem == null || problem.packages.isEmpty()) {
+            sendFailure(exchange, "problemId: Problem not found");
+            return;
+        }
+
+        try (FileSystem zip = FileSystems.newFileSystem(
+                URI.create("jar:" + problem.packages.lastEntry().getValue().toAbsolutePath().toUri()), Map.of())) {
+            Path configPath = Files.createTempFile("problem", ".xml");
+            ProblemConfig config;
+            try {
+                Files.copy(zip.getPath("problem.xml"), configPath, StandardCopyOption.REPLACE_EXISTING);
+                config = XMLUtils.parseProblemXML(configPath);
+            } catch (NoSuchFileException | ContestException e) {
+                sendFailure(exchange, "Package doesn't have correct problem.xml");
+                return;
+            } finally {
+                Files.deleteIfExists(configPath);
+            }
+
+            switch (method) {
+                case "problem.info" -> sendResult(exchange, String.format("{\"inputFile\":\"stdin\","
+                                + "\"outputFile\":\"stdout\",\"interactive\":%b,\"timeLimit\":%d,\"memoryLimit\":%d}",
+                        config.getInteractor() != null, config.getTimeLimit(), config.getMemoryLimit() / 1024 / 1024));
+                case "problem.files" -> {
+                    List<ProblemFile> sourceFiles = new ArrayList<>(config.getExecutables());
+                    sourceFiles.add(config.getChecker());
+                    if (config.getValidators() != null) {
+                        sourceFiles.addAll(config.getValidators());
+                    }
+                    if (config.getInteractor() != null) {
+                        sourceFiles.add(config.getInteractor());
+                    }
+                    Map<Path, ProblemFile> sources = new LinkedHashMap<>();
+                    sourceFiles.forEach(file -> sources.putIfAbsent(file.getPath(), file));
+                    sendResult(exchange, "{\"resourceFiles\":" + filesToJSON(zip, config.getResources(), null)
+                            + ",\"sourceFiles\":" + filesToJSON(zip, sources.values(), null) + ",\"auxFiles\":[]}");
+                }
+                case "problem.solutions" -> {
+                    List<ProblemFile> files = new ArrayList<>();
+                    List<String> tags = new ArrayList<>();
+                    for (Solution solution : config.getSolutions()) {
+                        files.add(solution.getFile());
+                        tags.add(solution.getTag());
+                    }
+                    sendResult(exchange, filesToJSON(zip, files, tags));
+                }
+                case "problem.viewFile", "problem.viewSolution" -> {
+                    String directory = method.equals("problem.viewSolution") ? "solutions/" : "files/";
+                    Path file = zip.getPath(directory + values.getOrDefault("name", ""));
+                    if (Files.isRegularFile(file)) {
+                        sendBytes(exchange, 200, "application/octet-stream", Files.readAllBytes(file));
+                    } else {
+                        sendFailure(exchange, "name: File not found");
+                    }
+                }
+                case "problem.tests" -> {
+                    boolean noInputs = Boolean.parseBoolean(values.get("noInputs"));
+                    StringJoiner result = new StringJoiner(",", "[", "]");
+                    for (Test test : config.getTests()) {
+                        boolean manual = test.getMethod() == GenerationMethod.MANUAL;
+                        StringBuilder json = new StringBuilder(String.format("{\"index\":%d,\"manual\":%b",
+                                test.getId(), manual));
+                        if (manual && !noInputs) {
+                            Path input = zip.getPath(String.format(config.getInputFilePattern(), test.getId()));
+                            // like in JSON of Polygon, input which isn't UTF-8 is not kept exactly
+                            json.append(",\"input\":").append(JSONObject.quote(new String(Files.readAllBytes(input),
+                                    StandardCharsets.UTF_8)));
+                        }
+                        if (!manual) {
+                            json.append(",\"scriptLine\":").append(JSONObject.quote(test.getCmd() + " > "
+                                    + test.getId()));
+                        }
+                        if (test.getGroup() != null) {
+                            json.append(",\"group\":").append(JSONObject.quote(test.getGroup()));
+                        }
+                        if (test.getPoints() != -1) {
+                            json.append(",\"points\":").append(test.getPoints()).append(".0");
+                        }
+                        result.add(json.append('}'));
+                    }
+                    sendResult(exchange, result.toString());
+                }
+                case "problem.testInput" -> {
+                    int index = parseId(values.get("testIndex"));
+                    Test test = index < 1 || index > config.getTests().size() ? null : config.getTests().get(index - 1);
+                    if (test != null && test.getMethod() == GenerationMethod.MANUAL) {
+                        Path input = zip.getPath(String.format(config.getInputFilePattern(), index));
+                        sendBytes(exchange, 200, "application/octet-stream", Files.readAllBytes(input));
+                    } else {
+                        sendFailure(exchange, "testIndex: Manual test not found");
+                    }
+                }
+                case "problem.checker" -> sendResult(exchange, JSONObject.quote(getFileName(config.getChecker())));
+                case "problem.validator" -> sendResult(exchange, JSONObject.quote(
+                        config.getValidators() == null || config.getValidators().isEmpty() ? ""
+                                : getFileName(config.getValidators().get(0))));
+                case "problem.interactor" -> sendResult(exchange, JSONObject.quote(
+                        config.getInteractor() == null ? "" : getFileName(config.getInteractor())));
+                case "problem.viewTestGroup" -> {
+                    StringJoiner result = new StringJoiner(",", "[", "]");
+                    for (Group group : config.getGroups() == null ? List.<Group>of() : config.getGroups()) {
+                        StringJoiner dependencies = new StringJoiner(",", "[", "]");
+                        if (group.getDependencies() != null) {
+                            group.getDependencies().forEach(
+                                    dependency -> dependencies.add(JSONObject.quote(dependency)));
+                        }
+                        result.add(String.format("{\"name\":%s,\"pointsPolicy\":\"%s\","
+                                        + "\"feedbackPolicy\":\"%s\",\"dependencies\":%s}",
+                                JSONObject.quote(group.getId()), group.getPointsPolicy(), group.getFeedbackPolicy(),
+                                dependencies));
+                    }
+                    sendResult(exchange, result.toString());
+                }
+                case "problem.statements" -> {
+                    StringJoiner result = new StringJoiner(",", "{", "}");
+                    config.getNames().forEach((language, name) -> result.add(JSONObject.quote(language)
+                            + ":{\"encoding\":\"UTF-8\",\"name\":" + JSONObject.quote(name) + "}"));
+                    sendResult(exchange, result.toString());
+                }
+            }
+        }
+    }
+
+    private static String filesToJSON(final FileSystem zip, final Collection<ProblemFile> files,
+                                      final List<String> tags) throws IOException {
+        StringJoiner result = new StringJoiner(",", "[", "]");
+        int i = 0;
+        for (ProblemFile file : files) {
+            Path entry = zip.getPath(file.getPath().toString().replace('\\', '/'));
+            StringBuilder json = new StringBuilder(String.format("{\"name\":%s,\"modificationTimeSeconds\":%d,"
+                            + "\"length\":%d", JSONObject.quote(getFileName(file)),
+                    Files.getLastModifiedTime(entry).toMillis() / 1000, Files.size(entry)));
+            if (file.getType() != null) {
+                json.append(",\"sourceType\":").append(JSONObject.quote(file.getType()));
+            }
+            if (tags != null) {
+                json.append(",\"tag\":").append(JSONObject.quote(tags.get(i++)));
+            }
+            result.add(json.append('}'));
+        }
+        return result.toString();
+    }
+
+    private static String getFileName(final ProblemFile file) {
+        return file.getPath().getFileName().toString();
+    }
+
+    private String checkSignature(final String method, final List<NameValuePair> parameters) {
+        String apiSig = null;
+        String apiKey = null;
+        boolean hasTime = false;
+        List<NameValuePair> signedParameters = new ArrayList<>();
+
+        for (NameValuePair parameter : parameters) {
+            switch (parameter.getName()) {
+                case "apiSig" -> apiSig = parameter.getValue();
+                case "apiKey" -> apiKey = parameter.getValue();
+                case "time" -> hasTime = true;
+            }
+            if (!parameter.getName().equals("apiSig")) {
+                signedParameters.add(parameter);
+            }
+        }
+
+        if (!key.equals(apiKey)) {
+            return "apiKey: Incorrect API key";
+        }
+        if (!hasTime) {
+            return "time: Field should not be empty";
+        }
+        if (!ApiSignature.verify(apiSig, method, signedParameters, secret)) {
+            return "apiSig: Incorrect signature";
+        }
+        return null;
+    }
+
+    private static String problemToJSON(final FakeProblem problem) {
+        int latestPackage = problem.packages.isEmpty() ? 0 : problem.packages.lastKey();
+        return String.format("{\"id\":%d,\"owner\":%s,\"name\":%s,\"deleted\":false,\"favourite\":false,"
+                        + "\"accessType\":\"OWNER\",\"revision\":%d,\"latestPackage\":%d,\"modified\":false}",
+                problem.id, JSONObject.quote(OWNER), JSONObject.quote(problem.name), latestPackage, latestPackage);
+    }
+
+    private static List<NameValuePair> readParameters(final HttpExchange exchange) throws IOException {
+        List<NameValuePair> parameters = new ArrayList<>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+
+        try (InputStream body = exchange.getRequestBody()) {
+            parseParameters(new String(body.readAllBytes(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void parseParameters(final String query, final List<NameValuePair> parameters) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator == -1 ? pair : pair.substring(0, separator);
+            String value = separator == -1 ? "" : pair.substring(separator + 1);
+            parameters.add(new BasicNameValuePair(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static void sendResult(final HttpExchange exchange, final String result) throws IOException {
+        sendBytes(exchange, 200, "application/json;charset=UTF-8",
+                ("{\"status\":\"OK\",\"result\":" + result + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendFailure(final HttpExchange exchange, final String comment) throws IOException {
+        sendBytes(exchange, 400, "application/json;charset=UTF-8",
+                ("{\"status\":\"FAILED\",\"comment\":" + JSONObject.quote(comment) + "}")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendBytes(final HttpExchange exchange, final int status, final String contentType,
+                                  final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    private static int parseId(final String value) {
+        try {
+            return value == null ? -1 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static List<Path> listDirectory(final Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        return paths;
+    }
+
+    private static long requireNonNegative(final long value, final String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must be non-negative: " + value);
+        }
+        return value;
+    }
+
+    private static double requireProbability(final double value, final String name) {
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Runs server until process is terminated.
+     * Usage: <code>FakePolygonServer -f &lt;fixtures&gt; -c &lt;credentials&gt; [options]</code>
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("f").longOpt("fixtures").hasArg().required().desc("Fixture directory").build());
+        options.addOption(Option.builder("k").longOpt("key").hasArg().required().desc("Accepted API key").build());
+        options.addOption(Option.builder("s").longOpt("secret").hasArg().required().desc("Accepted API secret").build());
+        options.addOption(Option.builder("p").longOpt("port").hasArg().desc("Port to listen").build());
+        options.addOption(Option.builder().longOpt("threads").hasArg().desc("Number of handler threads").build());
+        options.addOption(Option.builder().longOpt("latency").hasArg().desc("Request latency in ms").build());
+        options.addOption(Option.builder().longOpt("bandwidth").hasArg().desc("Download speed in KB/s").build());
+        options.addOption(Option.builder().longOpt("error_rate").hasArg().desc("Probability of HTTP 503").build());
+        options.addOption(Option.builder().longOpt("drop_rate").hasArg().desc("Probability of dropped download").build());
+
+        try {
+            CommandLine commandLine = new DefaultParser().parse(options, args);
+
+            FakePolygonServer server = new FakePolygonServer(Paths.get(commandLine.getOptionValue("fixtures")),
+                    commandLine.getOptionValue("key"), commandLine.getOptionValue("secret"));
+            server.setLatency(Long.parseLong(commandLine.getOptionValue("latency", "0")));
+            server.setBandwidth(Long.parseLong(commandLine.getOptionValue("bandwidth", "0")) * 1024);
+            server.setErrorRate(Double.parseDouble(commandLine.getOptionValue("error_rate", "0")));
+            server.setDropRate(Double.parseDouble(commandLine.getOptionValue("drop_rate", "0")));
+
+            String apiUrl = server.start(Integer.parseInt(commandLine.getOptionValue("port", "0")),
+                    Integer.parseInt(commandLine.getOptionValue("threads", "16")));
+            ConsoleLogger.logInfo("Fake Polygon API is listening on %s (%d contests, %d problems)", apiUrl,
+                    server.contests.size(), server.problems.size());
+        } catch (ParseException | IOException | IllegalArgumentException e) {
+            ConsoleLogger.logError(e, "Couldn't start fake Polygon server!");
+            e.printStackTrace();
+        }
+    }
+
+    private static class FakeProblem {
+        private final int id;
+        private final String name;
+        private final TreeMap<Integer, Path> packages = new TreeMap<>();
+        private final Map<String, Path> typedPackages = new HashMap<>();
+
+        private FakeProblem(final int id, final String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes kinds of problem files stored in Polygon
+ */
+public enum FileType {
+    RESOURCE, SOURCE, AUX, SOLUTION
+}
@@ -10,13 +10,20 @@ public class Package {
     private final int creationTimeSeconds;
     private final PackageState state;
     private final String comment;
+    private final PackageType type;
 
     public Package(final int id, final int revision, final int creationTimeSeconds, final PackageState state, final String comment) {
+        this(id, revision, creationTimeSeconds, state, comment, null);
+    }
+
+    public Package(final int id, final int revision, final int creationTimeSeconds, final PackageState state,
+                   final String comment, final PackageType type) {
         this.id = id;
         this.revision = revision;
         this.creationTimeSeconds = creationTimeSeconds;
         this.state = state;
         this.comment = comment;
+        this.type = type;
     }
 
     public int getId() {
@@ -38,4 +45,13 @@ public class Package {
     public String getComment() {
         return comment;
     }
+
+    /**
+     * Gets type of built package: {@link PackageType#STANDARD} if only standard package was built
+     *
+     * @return {@link PackageType} or <code>null</code> if it is unknown
+     */
+    public PackageType getType() {
+        return type;
+    }
 }
@@ -0,0 +1,65 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+import java.nio.file.Path;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes downloaded problem package archive
+ */
+public class PackageDownload {
+    private final Path path;
+    private final long size;
+    private final long transferredBytes;
+    private final String sha256;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs downloaded package description
+     *
+     * @param path             {@link Path} to saved archive
+     * @param size             archive size in bytes
+     * @param transferredBytes number of bytes actually transferred by this download (less than size if resumed)
+     * @param sha256           hex SHA-256 checksum of the archive
+     * @param elapsedNanos     time spent on downloading in nanoseconds
+     */
+    public PackageDownload(final Path path, final long size, final long transferredBytes, final String sha256,
+                           final long elapsedNanos) {
+        this.path = path;
+        this.size = size;
+        this.transferredBytes = transferredBytes;
+        this.sha256 = sha256;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets download throughput
+     *
+     * @return transferred megabytes per second
+     */
+    public double getThroughput() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return (transferredBytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9);
+    }
+}
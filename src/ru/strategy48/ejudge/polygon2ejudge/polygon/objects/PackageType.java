@@ -0,0 +1,47 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+import java.util.Locale;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes types of problem packages. Standard packages contain only manual tests and generation scripts, full
+ * packages (<code>linux</code> and <code>windows</code>) also contain generated tests and answers
+ */
+public enum PackageType {
+    STANDARD, LINUX, WINDOWS;
+
+    /**
+     * Gets name of type used by Polygon API
+     *
+     * @return lowercase type name
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets type of given package which may be downloaded instead of this type. Full packages are built only on
+     * request, if they weren't built, standard package is used
+     *
+     * @param pack problem package
+     * @return this type or {@link #STANDARD} if only standard package was built
+     */
+    public PackageType availableFor(final Package pack) {
+        return this != STANDARD && pack.getType() == STANDARD ? STANDARD : this;
+    }
+
+    /**
+     * Finds type by its name used by Polygon API
+     *
+     * @param name type name
+     * @return {@link PackageType} or <code>null</code> if type is unknown
+     */
+    public static PackageType fromName(final String name) {
+        for (PackageType type : values()) {
+            if (type.getName().equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes file of Polygon problem (resource, source, auxiliary file or solution)
+ */
+public class PolygonFile {
+    private final FileType type;
+    private final String name;
+    private final long modificationTimeSeconds;
+    private final long length;
+    private final String sourceType;
+
+    public PolygonFile(final FileType type, final String name, final long modificationTimeSeconds, final long length,
+                       final String sourceType) {
+        this.type = type;
+        this.name = name;
+        this.modificationTimeSeconds = modificationTimeSeconds;
+        this.length = length;
+        this.sourceType = sourceType;
+    }
+
+    public FileType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getModificationTimeSeconds() {
+        return modificationTimeSeconds;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+}
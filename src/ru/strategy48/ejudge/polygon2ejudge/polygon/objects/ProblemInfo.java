@@ -0,0 +1,52 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes general Polygon problem settings
+ */
+public class ProblemInfo {
+    private final String inputFile;
+    private final String outputFile;
+    private final boolean interactive;
+    private final int timeLimit;
+    private final int memoryLimit;
+
+    public ProblemInfo(final String inputFile, final String outputFile, final boolean interactive,
+                       final int timeLimit, final int memoryLimit) {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.interactive = interactive;
+        this.timeLimit = timeLimit;
+        this.memoryLimit = memoryLimit;
+    }
+
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    /**
+     * Gets time limit
+     *
+     * @return time limit in milliseconds
+     */
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Gets memory limit
+     *
+     * @return memory limit in megabytes
+     */
+    public int getMemoryLimit() {
+        return memoryLimit;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes test of Polygon problem
+ */
+public class ProblemTest {
+    private final int index;
+    private final boolean manual;
+    private final String input;
+    private final String scriptLine;
+    private final String group;
+    private final Double points;
+
+    public ProblemTest(final int index, final boolean manual, final String input, final String scriptLine,
+                       final String group, final Double points) {
+        this.index = index;
+        this.manual = manual;
+        this.input = input;
+        this.scriptLine = scriptLine;
+        this.group = group;
+        this.points = points;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isManual() {
+        return manual;
+    }
+
+    /**
+     * Gets input of manual test
+     *
+     * @return test input or <code>null</code> if test is generated or inputs weren't requested
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Gets generation script line of generated test
+     *
+     * @return script line or <code>null</code> if test is manual
+     */
+    public String getScriptLine() {
+        return scriptLine;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public Double getPoints() {
+        return points;
+    }
+}
@@ -0,0 +1,38 @@
+package ru.strategy48.ejudge.polygon2ejudge.polygon.objects;
+
+import java.util.List;
+
+/**
+ * @author Perveev Mike (perveev_m@mail.ru)
+ * Describes group of tests of Polygon problem
+ */
+public class TestGroup {
+    private final String name;
+    private final String pointsPolicy;
+    private final String feedbackPolicy;
+    private final List<String> dependencies;
+
+    public TestGroup(final String name, final String pointsPolicy, final String feedbackPolicy,
+                     final List<String> dependencies) {
+        this.name = name;
+        this.pointsPolicy = pointsPolicy;
+        this.feedbackPolicy = feedbackPolicy;
+        this.dependencies = dependencies;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPointsPolicy() {
+        return pointsPolicy;
+    }
+
+    public String getFeedbackPolicy() {
+        return feedbackPolicy;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+}